@@ -5,19 +5,33 @@
  */
 package circuitikztool;
 
+import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Graphics2D; // added
-import java.awt.MouseInfo;
 import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Stroke;
 import java.awt.geom.Point2D; // 2D added
+import java.awt.geom.Rectangle2D;
+import java.awt.font.FontRenderContext;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseWheelListener;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.swing.AbstractAction;
+import javax.swing.JComponent;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.KeyStroke;
+import javax.swing.Timer;
 
 
 
@@ -35,39 +49,145 @@ public class CircuitMaker extends JPanel {
     boolean americanStyleComponents = true;
     boolean useHMarker = true;
 
-    //GRID_SIZE determines the current zoom level of the schematic window, a lower values indicates zooming out and a larger values indicates zooming in
-    static double GRID_SIZE = 50;
+    //pan and zoom of the schematic window, changed by the input listeners and only read while painting
+    //the grid size determines the current zoom level, a lower values indicates zooming out and a larger values indicates zooming in
+    final ViewTransform view = new ViewTransform(50, 50 * 5, 50 * 5);
 
-    //current mouse position mapped to the schematic grid
+    //smallest grid size the user can zoom out to
+    final static double MIN_GRID_SIZE = 2;
+
+    //zoom factor of a single notch of the mouse wheel
+    final static double ZOOM_STEP = 1.1;
+
+    /*
+        level of detail used to draw placed components, depends on the zoom level. 
+    below LOD_SIMPLE_GRID_SIZE labels are hidden and non-path components become filled boxes, 
+    below LOD_DENSITY_GRID_SIZE the schematic is drawn as shaded density cells from the density quadtree
+     */
+    final static int LOD_FULL = 0;
+    final static int LOD_SIMPLE = 1;
+    final static int LOD_DENSITY = 2;
+    final static double LOD_SIMPLE_GRID_SIZE = 16;
+    final static double LOD_DENSITY_GRID_SIZE = 6;
+
+    //size (in pixels) of the density cells drawn at LOD_DENSITY
+    final static double DENSITY_CELL_PIXELS = 4;
+
+    //schematics with at least this many components are drawn in tiles on background threads (see TileRenderer)
+    final static int TILED_COMPONENT_THRESHOLD = 2000;
+
+    //schematics with at least this many components are loaded into a PackedComponentStore instead of one object per component
+    final static int PACKED_COMPONENT_THRESHOLD = 50000;
+
+    //a component is highlighted when the cursor is at most this many pixels away from it
+    final static double HOVER_DISTANCE_PIXELS = 8;
+
+    //while a wire is drawn the cursor snaps to terminals that are at most this many pixels away from it
+    final static double TERMINAL_SNAP_PIXELS = 10;
+
+    //current mouse position mapped to the nearest half grid point of the schematic (in circuitikz coordinates)
     double xGridPosition;
     double yGridPosition;
 
-    //current offset of the origin in the CircuitMaker Panel
-    double x_offset = GRID_SIZE * 5;
-    double y_offset = GRID_SIZE * 5;
+    //last position of the cursor in pixels as reported by the mouse listeners, it is only mapped to the grid once per frame (see updatePointer())
+    int pointerX, pointerY;
+
+    //false once the cursor left the window, nothing is hovered then
+    boolean pointerInside = false;
+
+    //slot of the component under the cursor, looked up once per frame and only drawn in the overlay. -1 if there is none
+    private int hoveredSlot = -1;
 
     //booleans indicating whether or not the user is currently holding down the mouse wheel or the left click respectively
     //these are updated by the mouseListeners implemented in the CircuitMaker Constructor
     boolean dragging = false;
     boolean clicking = false;
 
-    //previously polled mouse position, these are used to track user dragging (panning) in the schematic window
-    int lastMouseX, lastMouseY;
+    //position of the previous drag event, panning moves the view by the distance between two drag events
+    int lastDragX, lastDragY;
+
+    //ID of the selected component (if a user selects a component in the Components listbox this variable is updated), -1 if there is none
+    //when several components are selected this is the one whose label and latex string are shown in the UI
+    private long selectedComponentId = -1;
+
+    //slots of every selected component, always includes the one of selectedComponentId. delete, move and relabel work on all of them at once
+    //slots stay the same until the store is compacted, compactComponents() moves the selection along
+    private final BitSet selection = new BitSet();
+
+    //corner the rubber band (shift + left drag) was started at in pixels, null while no rubber band is drawn
+    private Point bandStart;
 
-    //current index selected in the components ArrayList (if a user selects a component in the Components listbox this variable is updated) 
-    private int componentIndexSelected = 0;
+    //distance (in circuitikz coordinates) the selection is moved by a single arrow key press
+    final static double MOVE_STEP = 0.5;
 
     //offset of the origin from 0,0 of the draw window, changed when the user pans around the schematic
-    Point2D originOffset;
+    Point2D originOffset = view.getOriginOffset();
 
     /*
-        ArrayList storing all components placed by the user
+        all components placed by the user. a ComponentList for normal schematics, large ones are loaded into a 
+    PackedComponentStore. components handed out by the store have to be written back with set() after they were changed.
+    deleted components leave a removed slot behind until the store is compacted (see compactComponents())
      */
-    private ArrayList<Component> components;
+    private ComponentStore components;
+
+    //latest snapshot of the components, published after every change so other threads can read a consistent version without locking
+    private final AtomicReference<ComponentSnapshot> publishedModel = new AtomicReference<>();
 
     //current tool the user is selecting
     static int currentTool = Component.PATH;
 
+    //background and dot grid, cached as a texture tile so it doesn't have to be drawn point by point every frame
+    private final GridLayer gridLayer = new GridLayer();
+
+    //finds components by position for picking, kept up to date whenever components are added, removed or replaced (see addToIndexes())
+    private final SpatialIndex spatialIndex = new SpatialIndex();
+
+    //terminals of the placed components, wires being drawn snap to them
+    private final TerminalIndex terminalIndex = new TerminalIndex();
+
+    //true if the cursor was pulled onto a terminal by updatePointer()
+    private boolean snappedToTerminal = false;
+
+    //summary of where components are, only built when the schematic is drawn at LOD_DENSITY and dropped on every model change
+    private DensityQuadtree densityTree;
+
+    //offscreen copy of the background, grid and placed components, redrawn only when the model or the view changes
+    private final StaticLayer staticLayer;
+
+    //schedules frames for this window, everything that changes what is displayed should go through requestRepaint()
+    private final RepaintScheduler repaintScheduler;
+
+    //static part of large schematics, drawn in tiles on a worker pool. tilesValid is false when the tiles need a new snapshot of the components
+    private final TileRenderer tileRenderer;
+    private boolean tilesValid = false;
+
+    //area of the schematic (in circuitikz coordinates) that changed since the tiles got their last snapshot, tilesFullyDirty if that's unknown
+    //the area covers labels as big as they are at tileDirtyGridSize
+    private Rectangle2D tileDirtyArea;
+    private double tileDirtyGridSize;
+    private boolean tilesFullyDirty = true;
+
+    //font render context labels were last drawn with, used to measure labels when working out what a change covers
+    private FontRenderContext labelContext;
+
+    /*
+        while the user is panning, zooming or dragging the schematic is drawn with the fast settings (no antialiasing, no labels, 
+    simplified symbols, see Preferences.fastInteraction). idleTimer fires once the user stopped for Preferences.interactionIdleTimeout 
+    milliseconds, degraded is true if anything was drawn with the fast settings since then and has to be drawn again
+     */
+    private boolean interacting = false;
+    private boolean degraded = false;
+
+    //true while the mouse wheel is spinning, the last drawn frame is scaled instead of drawing the schematic again at every step
+    private boolean zooming = false;
+    private final Timer idleTimer;
+
+    //frame time overlay, toggled with F3
+    final FrameProfiler profiler = new FrameProfiler();
+
+    //components that were visible the last time the static layer was drawn, reused between redraws
+    private final ArrayList<Component> visibleComponents = new ArrayList<>();
+
     //when a user starts holding left click the starting coordinates of the cursor are stored here, used at the end to place a component. 
     Point2D wireStart;
     // private Point2D wireStart;
@@ -84,15 +204,65 @@ public class CircuitMaker extends JPanel {
     }
 
     /**
-     * sets the selected component index, a component is selected by the user in
-     * the UI by clicking on it in the "Components" list box. when a component
-     * is selected it needs to be highlighted in the circuitmaker and the UI
+     * sets the selected component, a component is selected by the user in the
+     * UI by clicking on it in the "Components" list box. when a component is
+     * selected it needs to be highlighted in the circuitmaker and the UI
      * fields need to be updated with its latexString and label
      *
-     * @param index index components ArrayList to be selected
+     * @param id ID of the component to be selected, -1 to select nothing
+     */
+    public void setSelectedComponentId(long id) {
+        setSelectedComponentIds(new long[]{id});
+    }
+
+    /**
+     * selects several components at once, the first ID becomes the component
+     * shown in the UI fields (the list box does the same with the first
+     * selected row)
+     *
+     * @param ids IDs of the components in ascending order, unknown ones are
+     * ignored
      */
-    public void setSelectedComponentIndex(int index) {
-        componentIndexSelected = index;
+    public void setSelectedComponentIds(long[] ids) {
+        selection.clear();
+        for (long id : ids) {
+            int slot = components.slotOf(id);
+            if (slot >= 0) {
+                selection.set(slot);
+            }
+        }
+        selectedComponentId = ids.length > 0 && components.slotOf(ids[0]) >= 0 ? ids[0] : -1;
+        requestRepaint();
+    }
+
+    /**
+     * returns the IDs of every selected component in ascending order
+     *
+     * @return IDs of the selected components
+     */
+    public long[] getSelectedComponentIds() {
+        long[] ids = new long[selection.cardinality()];
+        int found = 0;
+        for (int a = selection.nextSetBit(0); a >= 0; a = selection.nextSetBit(a + 1)) {
+            ids[found++] = components.getId(a);
+        }
+        return ids;
+    }
+
+    /**
+     * @return slot of the component shown in the UI fields, -1 if nothing is
+     * selected
+     */
+    private int getSelectedSlot() {
+        return selectedComponentId < 0 ? -1 : components.slotOf(selectedComponentId);
+    }
+
+    /**
+     * asks for the CircuitMaker window to be redrawn. requests are coalesced,
+     * so calling this many times in a row only results in a single frame.
+     */
+    public void requestRepaint() {
+        repaintScheduler.requestRepaint();
     }
 
     /**
@@ -101,22 +271,86 @@ public class CircuitMaker extends JPanel {
      *
      */
     public CircuitMaker() {
-        components = new ArrayList(0);
+        components = new ComponentList();
+        publishModel();
+        repaintScheduler = new RepaintScheduler(this);
+        tileRenderer = new TileRenderer(this);
+        idleTimer = new Timer(Preferences.interactionIdleTimeout, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                interacting = false;
+                zooming = false;
+                if (degraded) {
+                    degraded = false;
+                    staticLayer.invalidate();
+                }
+                requestRepaint();
+            }
+        });
+        idleTimer.setRepeats(false);
+        staticLayer = new StaticLayer(this, new StaticLayer.Content() {
+            @Override
+            public void paintContent(Graphics2D g2d) {
+                paintStaticLayer(g2d);
+            }
+        });
+
+        //F3 shows or hides the frame profiler, no matter which part of the window has focus
+        String profilerName = "toggleProfiler";
+        getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_F3, 0), profilerName);
+        getActionMap().put(profilerName, new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                profiler.toggle();
+                requestRepaint();
+            }
+        });
+
+        //the selection is moved with the arrow keys and deleted with delete or backspace while the schematic has focus
+        setFocusable(true);
+        bindSelectionKey(KeyEvent.VK_LEFT, -MOVE_STEP, 0);
+        bindSelectionKey(KeyEvent.VK_RIGHT, MOVE_STEP, 0);
+        bindSelectionKey(KeyEvent.VK_UP, 0, -MOVE_STEP);
+        bindSelectionKey(KeyEvent.VK_DOWN, 0, MOVE_STEP);
+        AbstractAction delete = new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                deleteSelectedComponent();
+                CircuitikzTool.ui.updateComponentList();
+            }
+        };
+        getInputMap(JComponent.WHEN_FOCUSED).put(KeyStroke.getKeyStroke(KeyEvent.VK_DELETE, 0), "deleteSelection");
+        getInputMap(JComponent.WHEN_FOCUSED).put(KeyStroke.getKeyStroke(KeyEvent.VK_BACK_SPACE, 0), "deleteSelection");
+        getActionMap().put("deleteSelection", delete);
 
         addMouseMotionListener(new MouseAdapter() {
 
+            /*
+                the OS can send many more motion events than we draw frames, so the listeners only store the raw position. 
+            mapping it to the grid happens once per frame in paint(), the repaint requests are coalesced by the repaint scheduler
+             */
             @Override
             public void mouseMoved(MouseEvent e) {
-                //user moved mouse so we need to map the cursor to the grid. 
-                xGridPosition = 0.5 * (Math.round (e.getX() / (GRID_SIZE/2)));
-                yGridPosition = 0.5 * (Math.round (e.getY() / (GRID_SIZE/2)));
+                pointerX = e.getX();
+                pointerY = e.getY();
+                pointerInside = true;
+                requestRepaint();
             }
 
             @Override
             public void mouseDragged(MouseEvent e) {
-                //user moved mouse so we need to map the cursor to the grid. 
-                xGridPosition = 0.5 * (Math.round (e.getX() / (GRID_SIZE/2)));
-                yGridPosition = 0.5 * (Math.round (e.getY() / (GRID_SIZE/2)));
+                pointerX = e.getX();
+                pointerY = e.getY();
+                pointerInside = true;
+                //panning moves the view by however far the cursor moved since the last drag event
+                //placing a component or dragging a rubber band keeps full quality, only panning switches to fast rendering
+                if (dragging) {
+                    interactionStarted();
+                    view.panBy(e.getX() - lastDragX, e.getY() - lastDragY);
+                    lastDragX = e.getX();
+                    lastDragY = e.getY();
+                }
+                requestRepaint();
             }
         }
         );
@@ -125,42 +359,59 @@ public class CircuitMaker extends JPanel {
 
             @Override
             public void mousePressed(MouseEvent e) {
+                pointerX = e.getX();
+                pointerY = e.getY();
+                updatePointer();
+                //arrow keys and delete act on the selection while the schematic has focus
+                requestFocusInWindow();
                 switch (e.getButton()) {
                     case MouseEvent.BUTTON1:
+                        //shift + left click starts a rubber band selection instead of placing a component
+                        if (e.isShiftDown()) {
+                            bandStart = e.getPoint();
+                            break;
+                        }
                         //left click
                         clicking = true;
                         //user holding left click on the CircuitMaker means they're going to be placing a path component, we need to store the starting position of the click (mapped to the grid)
-                        wireStart = new Point2D.Double(xGridPosition - originOffset.getX(), yGridPosition - originOffset.getY());
-                        // wireStart = new Point2D.Double(xGridPosition, yGridPosition);
+                        wireStart = new Point2D.Double(xGridPosition, yGridPosition);
                         break;
                     case MouseEvent.BUTTON2:
                         //center click
                         dragging = true;
 
-                        //poll the mouse, we use these values to calculate the panning of the CircuitMaker window. 
-
-
-                        lastMouseX = MouseInfo.getPointerInfo().getLocation().x;
-                        lastMouseY = MouseInfo.getPointerInfo().getLocation().y;
+                        //drag events are measured from here on
+                        lastDragX = e.getX();
+                        lastDragY = e.getY();
                         break;
                     case MouseEvent.BUTTON3:
                         configComponent(getComponentClosestToPointer());
                     default:
                         break;
                 }
+                requestRepaint();
             }
 
             @Override
             public void mouseReleased(MouseEvent e) {
-                if (e.getButton() == MouseEvent.BUTTON1) {
+                pointerX = e.getX();
+                pointerY = e.getY();
+                updatePointer();
+                if (e.getButton() == MouseEvent.BUTTON1 && bandStart != null) {
+                    //everything inside of the rubber band becomes the selection
+                    Point2D from = view.toSchematic(bandStart.x, bandStart.y);
+                    Point2D to = view.toSchematic(e.getX(), e.getY());
+                    bandStart = null;
+                    Rectangle2D area = new Rectangle2D.Double(Math.min(from.getX(), to.getX()), Math.min(from.getY(), to.getY()),
+                            Math.abs(to.getX() - from.getX()), Math.abs(to.getY() - from.getY()));
+                    selectInside(area);
+                    CircuitikzTool.ui.updateComponentList();
+                } else if (e.getButton() == MouseEvent.BUTTON1) {
                     //left click
                     clicking = false;
 
-                    //mouse button has been released, place the component the user has just tried to create. 
+                    //mouse button has been released, place the component the user has just tried to create. placeComponent() also selects it
                     placeComponent();
-
-                    //set the selected component to component just placed. 
-                    componentIndexSelected = components.size();
                     CircuitikzTool.ui.updateComponentList(); //this is very bad and we shouldn't do it this way but eh whatever, update the UI component list
 
                 } else if (e.getButton() == MouseEvent.BUTTON2) {
@@ -168,7 +419,13 @@ public class CircuitMaker extends JPanel {
                     //no longer panning the schematic
                     dragging = false;
                 }
+                requestRepaint();
+            }
 
+            @Override
+            public void mouseExited(MouseEvent e) {
+                pointerInside = false;
+                requestRepaint();
             }
 
         });
@@ -176,68 +433,135 @@ public class CircuitMaker extends JPanel {
         addMouseWheelListener(new MouseWheelListener() {
             @Override
             public void mouseWheelMoved(MouseWheelEvent e) {
+                //every notch zooms by the same factor around the cursor, so the part of the schematic under the cursor stays put
                 //we don't cap the user from zooming in, they can make the grid as big as they want
-                //however if they make the grid too small it becomes difficult to render anything properly so we cap 
-                //the zoom in to a gridsize of 10. if we're at a grid size of 10 we make sure the user can also zoom out
-                if (GRID_SIZE > 10 || e.getWheelRotation() < 0) {
-                    GRID_SIZE -= e.getWheelRotation(); //very simple zoom method here, could be improved
+                //zooming out is capped at MIN_GRID_SIZE, far zoomed out schematics are drawn with less detail (see getDetailLevel())
+                double factor = Math.pow(ZOOM_STEP, -e.getPreciseWheelRotation());
+                if (view.zoomAt(factor, MIN_GRID_SIZE, e.getX(), e.getY())) {
+                    //the schematic is drawn again once the wheel stops, see idleTimer
+                    zooming = true;
+                    interactionStarted();
+                    requestRepaint();
                 }
-                //     System.out.println("Grid size is now " + GRID_SIZE);
             }
         });
     }
 
-    private int getComponentClosestToPointer() {
-        Point2D position = new Point2D.Double(xGridPosition - originOffset.getX(), yGridPosition - originOffset.getY());
-
-        double shortestDistance = Double.MAX_VALUE;
-        int index = -1;
-
-        //for path components we look for the center of the line, non-path have a single position so that makes things easier. 
-        for (int a = 0; a < components.size(); a++) {
-            double distance = Double.MAX_VALUE;
-            if (components.get(a).isPathComponent()) {
-                //find center of line
-                Point2D center = new Point2D.Double((components.get(a).wireStart.getX() + components.get(a).wireEnd.getX()) / 2, (components.get(a).wireStart.getX() + components.get(a).wireEnd.getY()) / 2);
-                distance = Point2D.distance(center.getX(), center.getY(), position.getX(), position.getY());
-            } else {
-                distance = Point2D.distance(components.get(a).getPosition().getX(), components.get(a).getPosition().getY(), position.getX(), position.getY());
-            }
-            if (distance < shortestDistance) {
-                shortestDistance = distance;
-                index = a;
+    /**
+     * binds an arrow key to moving the selection
+     *
+     * @param key key code of the arrow key
+     * @param dx horizontal distance in circuitikz coordinates
+     * @param dy vertical distance in circuitikz coordinates
+     */
+    private void bindSelectionKey(int key, final double dx, final double dy) {
+        String name = "moveSelection" + key;
+        getInputMap(JComponent.WHEN_FOCUSED).put(KeyStroke.getKeyStroke(key, 0), name);
+        getActionMap().put(name, new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (moveSelection(dx, dy)) {
+                    interactionStarted();
+                    CircuitikzTool.ui.updateComponentList();
+                }
             }
+        });
+    }
+
+    /**
+     * called by the input listeners whenever the user pans, zooms or moves the
+     * selection, switches to fast rendering until the user has been idle for
+     * Preferences.interactionIdleTimeout milliseconds
+     */
+    private void interactionStarted() {
+        interacting = true;
+        idleTimer.setInitialDelay(Preferences.interactionIdleTimeout);
+        idleTimer.restart();
+    }
+
+    /**
+     * @return true if the schematic should currently be drawn with the fast
+     * settings
+     */
+    boolean isFastRendering() {
+        return interacting && Preferences.fastInteraction;
+    }
+
+    /**
+     * sets the rendering hints for drawing the schematic. the fast settings
+     * turn everything off, full quality uses antialiasing and fractional
+     * metrics if they are turned on in the preferences.
+     *
+     * @param g2d graphics object to be drawn onto
+     * @param fast true for the fast settings
+     */
+    static void applyRenderingHints(Graphics2D g2d, boolean fast) {
+        if (fast || !Preferences.antialiasing) {
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+            g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
+            g2d.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_OFF);
+            g2d.setRenderingHint(RenderingHints.KEY_RENDERING, fast ? RenderingHints.VALUE_RENDER_SPEED : RenderingHints.VALUE_RENDER_DEFAULT);
+        } else {
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g2d.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+            g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
         }
-        return index;
+    }
+
+    /**
+     * finds the placed component closest to the cursor, wires are measured to
+     * the nearest point of their line and everything else to its symbol
+     *
+     * @return index of the closest component, -1 if nothing is placed
+     */
+    private int getComponentClosestToPointer() {
+        return spatialIndex.nearest(new Point2D.Double(xGridPosition, yGridPosition), components);
     }
 
     private void configComponent(int componentIndex) {
+        if (componentIndex < 0) {
+            return;
+        }
 //        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
 //        JOptionPane.showMessageDialog(this, "Selected: " + componentIndex);
-        LatexStringBuilder w = new LatexStringBuilder(CircuitikzTool.ui, true, components.get(componentIndex));
+        Component c = components.get(componentIndex);
+        //whatever happens only the area of the old and the new component has to be redrawn
+        Rectangle2D changed = getPaintedArea(c);
+        LatexStringBuilder w = new LatexStringBuilder(CircuitikzTool.ui, true, c);
         w.setLocationRelativeTo(null);
         w.setVisible(true);
         switch (w.getReturnStatus().componentType) {
             case Component.DELETE:
-                components.remove(componentIndex);
+                BitSet removed = new BitSet();
+                removed.set(componentIndex);
+                removeComponents(removed);
                 CircuitikzTool.ui.updateComponentList();
                 break;
             case Component.CANCEL:
+                //the dialog writes label and string into the component even when it is cancelled, the edited label covers its own area
+                changed.add(getPaintedArea(c));
+                components.set(componentIndex, c);
                 break;
             default:
+                //the dialog only changes label and string, the component is still indexed where it was
+                removeFromIndexes(componentIndex, c);
                 components.set(componentIndex, w.getReturnStatus());
+                addToIndexes(componentIndex, w.getReturnStatus());
+                changed.add(getPaintedArea(w.getReturnStatus()));
                 System.out.println(w.getReturnStatus().getComponentLabel());
                 break;
         }
+        modelChanged(changed);
     }
 
     /**
-     * gets the current selected component index
+     * gets the ID of the current selected component
      *
-     * @return currently selected component index
+     * @return ID of the currently selected component, -1 if there is none
      */
-    public int getSelectedComponentIndex() {
-        return componentIndexSelected;
+    public long getSelectedComponentId() {
+        return selectedComponentId;
     }
 
     /**
@@ -247,70 +571,130 @@ public class CircuitMaker extends JPanel {
      * object.
      *
      * @return String array representing all components placed in the
-     * circuitmaker window
+     * circuitmaker window, in the same order as getComponentIds()
      */
     public String[] getComponentList() {
-        String[] listItems = new String[components.size()];
-        for (int a = 0; a < listItems.length; a++) {
-            listItems[a] = components.get(a).getComponentLabelString();
+        String[] listItems = new String[components.count()];
+        int found = 0;
+        for (int a = 0; a < components.slotCount(); a++) {
+            if (!components.isRemoved(a)) {
+                listItems[found++] = components.get(a).getComponentLabelString();
+            }
         }
         return listItems;
     }
 
+    /**
+     * returns the IDs of every placed component in the order they were placed,
+     * which is also ascending
+     *
+     * @return IDs of all components, in the same order as getComponentList()
+     */
+    public long[] getComponentIds() {
+        long[] ids = new long[components.count()];
+        int found = 0;
+        for (int a = 0; a < components.slotCount(); a++) {
+            if (!components.isRemoved(a)) {
+                ids[found++] = components.getId(a);
+            }
+        }
+        return ids;
+    }
+
     /**
      * paint method of the CircuitMaker window, draws the grid, origin, and
-     * components to the window. also handles tracking mouse panning (yeah
-     * that'll be fixed in a later commit if I don't forget about writing this
-     * into the official javadoc)
+     * components to the window. panning and zooming are handled by the input
+     * listeners, paint only reads the current view transform.
      *
      * @param g2d graphics object to be drawn onto
      */
      @Override
     public void paint(Graphics g2d) {
+        profiler.beginFrame();
 
-        //first figure out what placed component has already been selected (we need to highlight it so the user can interact with it)
-        setSelectedComponentIndex(CircuitikzTool.ui.componentList.getSelectedIndex());
-
-        //keep track of the users mouse dragging, adjust the offset accordingly
-        if (dragging) {
-            x_offset += (MouseInfo.getPointerInfo().getLocation().x - lastMouseX);
-            y_offset += (MouseInfo.getPointerInfo().getLocation().y - lastMouseY);
-            lastMouseX = MouseInfo.getPointerInfo().getLocation().x;
-            lastMouseY = MouseInfo.getPointerInfo().getLocation().y;
-        }
+        //map the latest cursor position to the grid, however many motion events arrived since the last frame
+        updatePointer();
+        updateHover();
+        applyRenderingHints((Graphics2D) g2d, isFastRendering());
 
-        //snap the x and y offset to values of the grid size. this could be made somewhat better with some nicer rounding functions
-        double originOffsetX = ((int) (x_offset / GRID_SIZE)) * GRID_SIZE;
-        double originOffsetY = ((int) (y_offset / GRID_SIZE)) * GRID_SIZE;
+        //position of the origin in pixels
+        double originOffsetX = view.getOriginX();
+        double originOffsetY = view.getOriginY();
 
         //offset of the origin (in terms of Circuitikz coordinates) 
-        originOffset = new Point2D.Double( (int) (x_offset / GRID_SIZE), (int) (y_offset / GRID_SIZE));
+        originOffset = view.getOriginOffset();
+
+        //background, grid and placed components come from the static layer, it is only redrawn when one of them changed
+        //large schematics use tiles rendered in the background instead, unless they are zoomed out far enough for the density view
+        boolean tiled = components.count() >= TILED_COMPONENT_THRESHOLD && getDetailLevel() != LOD_DENSITY;
+        if (zooming && (tiled
+                ? tileRenderer.paintPreview((Graphics2D) g2d, view.getGridSize(), originOffsetX, originOffsetY, getWidth(), getHeight())
+                : staticLayer.paintPreview((Graphics2D) g2d, view.getGridSize(), originOffsetX, originOffsetY))) {
+            //while the wheel is spinning the last frame is scaled to the new zoom level, nothing is drawn again
+        } else if (tiled) {
+            if (!tilesValid) {
+                tileRenderer.setComponents(publishedModel.get(), tilesFullyDirty ? null : tileDirtyArea, tileDirtyGridSize);
+                tilesValid = true;
+                tilesFullyDirty = false;
+                tileDirtyArea = null;
+            }
+            profiler.begin(FrameProfiler.COMPONENTS);
+            tileRenderer.paint((Graphics2D) g2d, view.getGridSize(), originOffsetX, originOffsetY, getWidth(), getHeight());
+            profiler.end(FrameProfiler.COMPONENTS);
+            //origin is drawn on top so it is visible on placeholder tiles too
+            g2d.setColor(Preferences.selectedColor);
+            g2d.fillOval((int) (originOffsetX - 3.0), (int) (originOffsetY - 3.0), 5, 5);
+        } else {
+            staticLayer.paint((Graphics2D) g2d, view.getGridSize(), originOffsetX, originOffsetY);
+        }
 
-        //fill in the background with the background color
-        g2d.setColor(Preferences.backgroundColor);
-        g2d.fillRect(0, 0, 10000, 10000);
+        profiler.begin(FrameProfiler.OVERLAY);
 
+        /*
+            everything below is the interaction overlay, it is drawn on top of the static layer every frame 
+        and should stay cheap: origin hint, cursor, highlight of the selected component and the placement preview 
+         */
         //if someone hovers over the origin lets make sure they know that its the origin
-        if (originOffsetX == xGridPosition * GRID_SIZE && originOffsetY == yGridPosition * GRID_SIZE) {
+        if (xGridPosition == 0 && yGridPosition == 0) {
             g2d.setColor(Preferences.gridColor);
             g2d.drawString("Origin", (int) (originOffsetX - 10), (int) (originOffsetY - 5));
         }
 
-        //draw the grid
-        g2d.setColor(Preferences.gridColor);
-        for (int x = 0; x < this.getWidth(); x += GRID_SIZE/2) {
-            for (int y = 0; y < this.getHeight(); y += GRID_SIZE/2) {
-                g2d.drawLine(x, y, x, y);
+        //the component under the cursor gets a translucent halo, below the selection highlight in case it is selected too
+        if (hoveredSlot >= 0) {
+            paintHover((Graphics2D) g2d, components.get(hoveredSlot));
+        }
+
+        //selected components are drawn a second time in the selected color on top of their copy in the static layer
+        if (!selection.isEmpty()) {
+            int detail = getDetailLevel();
+            FontRenderContext labelContext = detail == LOD_FULL ? ((Graphics2D) g2d).getFontRenderContext() : null;
+            Rectangle2D viewport = getViewport();
+            for (int a = selection.nextSetBit(0); a >= 0; a = selection.nextSetBit(a + 1)) {
+                Component c = components.get(a);
+                if (isVisible(c, viewport, labelContext)) {
+                    paintPlacedComponent(g2d, c, true, detail == LOD_FULL ? LOD_FULL : LOD_SIMPLE);
+                }
             }
         }
 
-        //draw origin
-        g2d.setColor(Preferences.selectedColor);
-        g2d.fillOval((int) (originOffsetX - 3.0), (int) (originOffsetY - 3.0), 5, 5);
+        //rubber band from where the user pressed to the cursor
+        if (bandStart != null) {
+            int x = Math.min(bandStart.x, pointerX), y = Math.min(bandStart.y, pointerY);
+            int w = Math.abs(pointerX - bandStart.x), h = Math.abs(pointerY - bandStart.y);
+            g2d.setColor(Preferences.hoverColor);
+            g2d.fillRect(x, y, w, h);
+            g2d.setColor(Preferences.selectedColor);
+            g2d.drawRect(x, y, w, h);
+        }
 
-        //draw the current mouse position snapped to the grid
+        //draw the current mouse position snapped to the grid, with a ring around it if it sits on a terminal
         g2d.setColor(Preferences.componentColor);
-        g2d.fillOval( (int) (GRID_SIZE * xGridPosition - 3), (int) (GRID_SIZE * yGridPosition - 3), 5, 5);
+        g2d.fillOval((int) (originOffsetX + view.getGridSize() * xGridPosition - 3), (int) (originOffsetY + view.getGridSize() * yGridPosition - 3), 5, 5);
+        if (snappedToTerminal) {
+            g2d.setColor(Preferences.selectedColor);
+            g2d.drawOval((int) (originOffsetX + view.getGridSize() * xGridPosition - 6), (int) (originOffsetY + view.getGridSize() * yGridPosition - 6), 11, 11);
+        }
 
         /*
             if the user is holding down left click we assume that they're attempting to place a component. We need to give them 
@@ -321,53 +705,433 @@ public class CircuitMaker extends JPanel {
             g2d.setColor(Preferences.componentColor);
 
             //path components just draw a line from start to the current position
-            if (Component.isPathComponent(currentTool)) {
+            ComponentType tool = ComponentType.get(currentTool);
+            if (tool.path) {
                 g2d.drawLine(
-                        (int) (GRID_SIZE * (wireStart.getX() + originOffset.getX())),
-                        (int) (GRID_SIZE * (wireStart.getY() + originOffset.getY())),
-                        (int) (GRID_SIZE * xGridPosition),
-                        (int) (GRID_SIZE * yGridPosition));
-            } else if (currentTool == Component.VCC_NODE) {
-                //for VCC we draw the node at the user's mouse position
-                Component.drawVCCNode(g2d,  (GRID_SIZE), xGridPosition, yGridPosition);
-            } else if (currentTool == Component.GROUND_NODE) {
-                //for GND we draw the node at the user's mouse position
-                Component.drawGNDNode(g2d, (GRID_SIZE), xGridPosition, yGridPosition);
-            } else if (currentTool == Component.VSS_NODE) {
-                //for VSS we draw the node at the user's mouse position
-                Component.drawVSSNode(g2d, (GRID_SIZE), xGridPosition, yGridPosition);
-            } else if (currentTool == Component.OPAMP_3TERMINAL || currentTool == Component.OPAMP_5TERMINAL) {
-                Component.drawOpamp(g2d, (GRID_SIZE), xGridPosition, yGridPosition, false, currentTool);
-
-            } else if (currentTool == Component.BUFFER) {
-                Component.drawBuffer(g2d, (GRID_SIZE), xGridPosition, yGridPosition, false);
-            } else if (currentTool == Component.FD_OPAMP) {
-                Component.drawFDOpAmp(g2d, (GRID_SIZE), xGridPosition, yGridPosition, false);
-            } else if (currentTool == Component.GM_AMP) {
-                Component.drawGMAmp(g2d, (GRID_SIZE), xGridPosition, yGridPosition, false);
-            } else if (currentTool == Component.BLOCK || currentTool == Component.SACDC || currentTool == Component.SACDC) {
-                Component.drawBlock(g2d, (GRID_SIZE), xGridPosition, yGridPosition, false);
-            } else if (currentTool == Component.MIXER) {
-                Component.drawMixer(g2d, (GRID_SIZE), xGridPosition, yGridPosition, false);
-            } else if (currentTool == Component.NODE) {
-                Component.drawNode(g2d, (GRID_SIZE), xGridPosition, yGridPosition, false);
-
-
-
-            } else if (currentTool == Component.TRANSFORMER || currentTool == Component.TRANSFORMER_WITH_CORE) {
-                Component.drawTransformer(g2d, (GRID_SIZE), xGridPosition, yGridPosition, false);
+                        (int) (view.getGridSize() * (wireStart.getX() + originOffset.getX())),
+                        (int) (view.getGridSize() * (wireStart.getY() + originOffset.getY())),
+                        (int) (view.getGridSize() * (xGridPosition + originOffset.getX())),
+                        (int) (view.getGridSize() * (yGridPosition + originOffset.getY())));
             } else {
-                //draw the transistor as a preview for the user
-                Component.drawTransistor(g2d, (GRID_SIZE), xGridPosition, yGridPosition, false);
+                //everything else is previewed with its glyph at the user's mouse position
+                tool.glyph.paint((Graphics2D) g2d, view.getGridSize(), xGridPosition + originOffset.getX(), yGridPosition + originOffset.getY(), false);
+            }
+        }
+        profiler.end(FrameProfiler.OVERLAY);
+
+        profiler.endFrame();
+        profiler.paint((Graphics2D) g2d);
+    }
+
+    /**
+     * maps the last cursor position reported by the mouse listeners to the
+     * nearest half grid point of the schematic
+     */
+    private void updatePointer() {
+        xGridPosition = view.toGridX(pointerX);
+        yGridPosition = view.toGridY(pointerY);
+
+        //wires snap to nearby terminals, when zoomed out those can be further away than the closest half grid point
+        snappedToTerminal = false;
+        if (Component.isPathComponent(currentTool)) {
+            Point2D terminal = terminalIndex.nearest(view.toSchematic(pointerX, pointerY), TERMINAL_SNAP_PIXELS / view.getGridSize());
+            if (terminal != null) {
+                xGridPosition = terminal.getX();
+                yGridPosition = terminal.getY();
+                snappedToTerminal = true;
             }
         }
+    }
+
+    /**
+     * adds a component to the spatial and the terminal index, every placed
+     * component has to be in both
+     *
+     * @param index index of the component in the store
+     * @param c component that was placed or changed
+     */
+    private void addToIndexes(int index, Component c) {
+        spatialIndex.add(index, c.getBounds());
+        terminalIndex.add(c);
+    }
+
+    /**
+     * removes a component from the spatial and the terminal index, has to be
+     * called before the component is moved or changed. Components that are
+     * removed from the schematic go through removeComponents() instead.
+     *
+     * @param index index of the component in the store
+     * @param c component as it was added to the indexes
+     */
+    private void removeFromIndexes(int index, Component c) {
+        spatialIndex.remove(index, c.getBounds());
+        terminalIndex.remove(c);
+    }
+
+    /**
+     * removes components from the schematic and the indexes, the schematic is
+     * only redrawn once. The removed components are dropped from the
+     * selection.
+     *
+     * @param removed slots of the components to remove
+     * @return area covered by the removed components, null if nothing was
+     * removed
+     */
+    private Rectangle2D removeComponents(BitSet removed) {
+        Rectangle2D changed = null;
+        for (int a = removed.nextSetBit(0); a >= 0; a = removed.nextSetBit(a + 1)) {
+            Component c = components.get(a);
+            if (changed == null) {
+                changed = getPaintedArea(c);
+            } else {
+                changed.add(getPaintedArea(c));
+            }
+            removeFromIndexes(a, c);
+            components.remove(a);
+        }
+        if (changed == null) {
+            return null;
+        }
+        selection.andNot(removed);
+        if (hoveredSlot >= 0 && removed.get(hoveredSlot)) {
+            hoveredSlot = -1;
+        }
+        compactComponents();
+        modelChanged(changed);
+        return changed;
+    }
+
+    /**
+     * drops the removed slots from the store once they make up more than
+     * half of it, so deleting stays cheap while the slots don't pile up.
+     * Everything that refers to slots is moved along.
+     */
+    private void compactComponents() {
+        if (components.removedCount() * 2 <= components.slotCount()) {
+            return;
+        }
+        int[] newSlots = components.compact();
+        spatialIndex.remap(newSlots);
+        BitSet moved = new BitSet();
+        for (int a = selection.nextSetBit(0); a >= 0; a = selection.nextSetBit(a + 1)) {
+            moved.set(newSlots[a]);
+        }
+        selection.clear();
+        selection.or(moved);
+        hoveredSlot = hoveredSlot >= 0 ? newSlots[hoveredSlot] : -1;
+    }
+
+    /**
+     * looks up the component under the cursor. runs once per frame, the
+     * spatial index keeps this cheap enough for any size of schematic. Nothing
+     * is hovered while the user is placing a component, panning or zooming.
+     */
+    private void updateHover() {
+        if (!pointerInside || clicking || dragging || zooming || bandStart != null) {
+            hoveredSlot = -1;
+            return;
+        }
+        Point2D pointer = view.toSchematic(pointerX, pointerY);
+        int closest = spatialIndex.nearest(pointer, components);
+        if (closest >= 0 && SpatialIndex.distance(components.get(closest), pointer) * view.getGridSize() > HOVER_DISTANCE_PIXELS) {
+            closest = -1;
+        }
+        hoveredSlot = closest;
+    }
+
+    /**
+     * draws the hover highlight of a component: a wide translucent line along
+     * path components and a rounded box around everything else
+     *
+     * @param g2d graphics object to be drawn onto
+     * @param c hovered component
+     */
+    private void paintHover(Graphics2D g2d, Component c) {
+        double gridSize = view.getGridSize();
+        double originOffsetX = view.getOriginX();
+        double originOffsetY = view.getOriginY();
+        Stroke stroke = g2d.getStroke();
+        g2d.setColor(Preferences.hoverColor);
+        if (c.isPathComponent()) {
+            g2d.setStroke(new BasicStroke(7, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+            g2d.drawLine(
+                    (int) (originOffsetX + gridSize * HalfGrid.x(c.start)),
+                    (int) (originOffsetY + gridSize * HalfGrid.y(c.start)),
+                    (int) (originOffsetX + gridSize * HalfGrid.x(c.end)),
+                    (int) (originOffsetY + gridSize * HalfGrid.y(c.end)));
+        } else {
+            Rectangle2D b = c.getBounds();
+            int x = (int) (originOffsetX + gridSize * b.getX()) - 4;
+            int y = (int) (originOffsetY + gridSize * b.getY()) - 4;
+            g2d.setStroke(new BasicStroke(3));
+            g2d.drawRoundRect(x, y, (int) (gridSize * b.getWidth()) + 8, (int) (gridSize * b.getHeight()) + 8, 8, 8);
+        }
+        g2d.setStroke(stroke);
+    }
+
+    /**
+     * draws the contents of the static layer: background, grid, origin and
+     * every placed component that is visible. Components are all drawn as
+     * not selected, the selection highlight is part of the overlay. Only
+     * called by the static layer when it has to be redrawn.
+     *
+     * @param g2d graphics object of the static layer
+     */
+    private void paintStaticLayer(Graphics2D g2d) {
+        double originOffsetX = view.getOriginX();
+        double originOffsetY = view.getOriginY();
+
+        //anything drawn with the fast settings is drawn again once the user stops interacting
+        boolean fast = isFastRendering();
+        degraded |= fast;
+        applyRenderingHints(g2d, fast);
+
+        //fill in the background and the grid, the grid is a cached tile anchored at the origin
+        profiler.begin(FrameProfiler.BACKGROUND);
+        gridLayer.paint(g2d, view.getGridSize(), originOffsetX, originOffsetY, getWidth(), getHeight());
+
+        //draw origin
+        g2d.setColor(Preferences.selectedColor);
+        g2d.fillOval((int) (originOffsetX - 3.0), (int) (originOffsetY - 3.0), 5, 5);
+        profiler.end(FrameProfiler.BACKGROUND);
 
         //draw all the components currently placed to the CircuitMaker window
-        for (int a = 0; a < components.size(); a++) {
-            components.get(a).paint(g2d, (int) (GRID_SIZE), originOffset, a == componentIndexSelected);
+        //anything that doesn't touch the visible part of the schematic (symbol or label) is skipped
+        //while panning the static layer only redraws a strip along the edge, in that case the graphics object is clipped to it
+        Rectangle clip = g2d.getClipBounds();
+        Rectangle2D viewport = clip == null ? getViewport() : getViewport(clip);
+        int detail = getDetailLevel();
+        if (detail == LOD_DENSITY) {
+            profiler.begin(FrameProfiler.COMPONENTS);
+            paintDensity(g2d, viewport);
+            profiler.end(FrameProfiler.COMPONENTS);
+            profiler.setComponentCounts(0, components.count());
+            return;
+        }
+        FontRenderContext labelContext = detail == LOD_FULL ? g2d.getFontRenderContext() : null;
+        if (labelContext != null) {
+            this.labelContext = labelContext;
+        }
+
+        //symbols first, labels in a second pass on top of every symbol
+        profiler.begin(FrameProfiler.COMPONENTS);
+        visibleComponents.clear();
+        for (int a = 0; a < components.slotCount(); a++) {
+            if (components.isRemoved(a)) {
+                continue;
+            }
+            Component c = components.get(a);
+            if (isVisible(c, viewport, labelContext)) {
+                visibleComponents.add(c);
+                if (detail == LOD_FULL) {
+                    c.paintSymbol(g2d, view.getGridSize(), originOffset, false);
+                } else {
+                    c.paintSimplified(g2d, view.getGridSize(), originOffset, false);
+                }
+            }
+        }
+        profiler.end(FrameProfiler.COMPONENTS);
+        profiler.setComponentCounts(visibleComponents.size(), components.count() - visibleComponents.size());
+
+        if (detail == LOD_FULL) {
+            profiler.begin(FrameProfiler.LABELS);
+            for (Component c : visibleComponents) {
+                c.paintLabel(g2d, view.getGridSize(), originOffset, false);
+            }
+            profiler.end(FrameProfiler.LABELS);
         }
     }
 
+    /**
+     * draws a placed component at the given level of detail
+     *
+     * @param g2d graphics object to be drawn onto
+     * @param c component to draw
+     * @param selected whether or not the component is selected
+     * @param detail LOD_FULL or LOD_SIMPLE
+     */
+    private void paintPlacedComponent(Graphics g2d, Component c, boolean selected, int detail) {
+        if (detail == LOD_FULL) {
+            c.paint(g2d, (int) (view.getGridSize()), originOffset, selected);
+        } else {
+            c.paintSimplified(g2d, view.getGridSize(), originOffset, selected);
+        }
+    }
+
+    /**
+     * draws the schematic as shaded cells, the more components inside of a
+     * cell the darker it is drawn. used when zoomed out so far that single
+     * components can't be made out anymore.
+     *
+     * @param g2d graphics object to be drawn onto
+     * @param viewport visible area in circuitikz coordinates
+     */
+    private void paintDensity(final Graphics2D g2d, Rectangle2D viewport) {
+        if (densityTree == null) {
+            densityTree = new DensityQuadtree(components);
+        }
+        final Color base = Preferences.componentColor;
+        densityTree.query(viewport, DENSITY_CELL_PIXELS / view.getGridSize(), new DensityQuadtree.CellVisitor() {
+            @Override
+            public void visit(double x, double y, double size, int count) {
+                //a single component is faint, each doubling of the count adds the same amount of shade
+                int alpha = (int) Math.min(255, 64 + 48 * Math.log(count) / Math.log(2));
+                g2d.setColor(new Color(base.getRed(), base.getGreen(), base.getBlue(), alpha));
+                int left = (int) (view.getGridSize() * (x + originOffset.getX()));
+                int top = (int) (view.getGridSize() * (y + originOffset.getY()));
+                g2d.fillRect(left, top,
+                        Math.max(1, (int) (view.getGridSize() * (x + size + originOffset.getX())) - left),
+                        Math.max(1, (int) (view.getGridSize() * (y + size + originOffset.getY())) - top));
+            }
+        });
+    }
+
+    /**
+     * returns the level of detail components are drawn with at the current
+     * zoom level, taking fast rendering while interacting into account
+     *
+     * @return LOD_FULL, LOD_SIMPLE or LOD_DENSITY
+     */
+    int getDetailLevel() {
+        int detail = getDetailLevel(view.getGridSize());
+        //the fast settings never draw labels or detailed symbols
+        if (detail == LOD_FULL && isFastRendering()) {
+            return LOD_SIMPLE;
+        }
+        return detail;
+    }
+
+    /**
+     * returns the level of detail components are drawn with at a given grid
+     * size
+     *
+     * @param gridSize size of the grid in pixels
+     * @return LOD_FULL, LOD_SIMPLE or LOD_DENSITY
+     */
+    static int getDetailLevel(double gridSize) {
+        if (gridSize < LOD_DENSITY_GRID_SIZE) {
+            return LOD_DENSITY;
+        } else if (gridSize < LOD_SIMPLE_GRID_SIZE) {
+            return LOD_SIMPLE;
+        }
+        return LOD_FULL;
+    }
+
+    /**
+     * checks whether any part of a component, symbol or label, is inside the
+     * given area
+     *
+     * @param c component to check
+     * @param viewport area in circuitikz coordinates
+     * @param labelContext font render context used to measure labels, null
+     * if labels aren't drawn
+     * @return true if the component has to be drawn
+     */
+    private boolean isVisible(Component c, Rectangle2D viewport, FontRenderContext labelContext) {
+        return touches(viewport, c.getBounds()) || (labelContext != null && touches(viewport, c.getLabelBounds(labelContext, view.getGridSize())));
+    }
+
+    /**
+     * called whenever the placed components change in any way, throws away
+     * the cached drawing of the schematic and schedules a new frame
+     */
+    public void modelChanged() {
+        publishModel();
+        densityTree = null;
+        tilesValid = false;
+        tilesFullyDirty = true;
+        staticLayer.invalidate();
+        requestRepaint();
+    }
+
+    /**
+     * called when the placed components changed only inside of a known area,
+     * for example when a single component was added, removed or relabelled.
+     * only that part of the cached drawing is redrawn.
+     *
+     * @param area area of the schematic that changed in circuitikz
+     * coordinates, should cover the old and new symbol and label of every
+     * changed component (see getPaintedArea())
+     */
+    public void modelChanged(Rectangle2D area) {
+        publishModel();
+        densityTree = null;
+        tilesValid = false;
+        double gridSize = view.getGridSize();
+        if (tileDirtyArea == null) {
+            tileDirtyArea = (Rectangle2D) area.clone();
+            tileDirtyGridSize = gridSize;
+        } else {
+            tileDirtyArea.add(area);
+            //labels measured at different zoom levels don't add up to one area
+            tilesFullyDirty |= tileDirtyGridSize != gridSize;
+        }
+
+        //the static layer wants pixels measured from the origin, grown a bit for the width of the lines
+        staticLayer.invalidate(new Rectangle2D.Double(area.getX() * gridSize - 2, area.getY() * gridSize - 2,
+                area.getWidth() * gridSize + 4, area.getHeight() * gridSize + 4));
+        requestRepaint();
+    }
+
+    /**
+     * returns the area a component covers when drawn, symbol and label, in
+     * circuitikz coordinates
+     *
+     * @param c placed component
+     * @return area covered by the component
+     */
+    private Rectangle2D getPaintedArea(Component c) {
+        if (labelContext == null) {
+            labelContext = getFontMetrics(Component.LABEL_FONT).getFontRenderContext();
+        }
+        Rectangle2D area = (Rectangle2D) c.getBounds().clone();
+        area.add(c.getLabelBounds(labelContext, view.getGridSize()));
+        return area;
+    }
+
+    /**
+     * checks whether two rectangles overlap. unlike Rectangle2D.intersects()
+     * this also works for rectangles without width or height, which is what
+     * horizontal and vertical wires have as their bounds.
+     *
+     * @param a first rectangle
+     * @param b second rectangle
+     * @return true if the rectangles overlap or touch
+     */
+    static boolean touches(Rectangle2D a, Rectangle2D b) {
+        return a.getMinX() <= b.getMaxX() && b.getMinX() <= a.getMaxX()
+                && a.getMinY() <= b.getMaxY() && b.getMinY() <= a.getMaxY();
+    }
+
+    /**
+     * returns the part of the schematic that is currently visible in the
+     * CircuitMaker window in circuitikz coordinates. The area is grown by a few
+     * pixels so that lines sitting right on the edge of the window are still
+     * drawn.
+     *
+     * @return visible area in circuitikz coordinates
+     */
+    private Rectangle2D getViewport() {
+        return getViewport(new Rectangle(0, 0, getWidth(), getHeight()));
+    }
+
+    /**
+     * returns the part of the schematic under an area of the CircuitMaker
+     * window in circuitikz coordinates, grown by a few pixels like
+     * getViewport()
+     *
+     * @param pixels area of the window in pixels
+     * @return area in circuitikz coordinates
+     */
+    private Rectangle2D getViewport(Rectangle pixels) {
+        double margin = 2 / view.getGridSize();
+        return new Rectangle2D.Double(
+                pixels.getX() / view.getGridSize() - originOffset.getX() - margin,
+                pixels.getY() / view.getGridSize() - originOffset.getY() - margin,
+                pixels.getWidth() / view.getGridSize() + 2 * margin,
+                pixels.getHeight() / view.getGridSize() + 2 * margin);
+    }
+
     /**
      * sets the component label of the currently selected component in
      * components ArrayList
@@ -375,8 +1139,14 @@ public class CircuitMaker extends JPanel {
      * @param text new label of the currently selected component
      */
     public void setSelectedComponentLabel(String text) {
-        if (componentIndexSelected >= 0) {
-            components.get(componentIndexSelected).setComponentLabel(text);
+        int slot = getSelectedSlot();
+        if (slot >= 0) {
+            Component c = components.get(slot);
+            Rectangle2D changed = getPaintedArea(c);
+            c.setComponentLabel(text);
+            components.set(slot, c);
+            changed.add(getPaintedArea(c));
+            modelChanged(changed);
         } else {
         }
     }
@@ -387,8 +1157,9 @@ public class CircuitMaker extends JPanel {
      * @return the component label of the currently selected component.
      */
     public String getSelectedComponentLabel() {
-        if (componentIndexSelected >= 0) {
-            return components.get(componentIndexSelected).getComponentLabel();
+        int slot = getSelectedSlot();
+        if (slot >= 0) {
+            return components.get(slot).getComponentLabel();
         } else {
             return "";
         }
@@ -402,8 +1173,13 @@ public class CircuitMaker extends JPanel {
      * component
      */
     public void setSelectedComponentLatexString(String text) {
-        if (componentIndexSelected >= 0) {
-            components.get(componentIndexSelected).setLatexString(text);
+        int slot = getSelectedSlot();
+        if (slot >= 0) {
+            Component c = components.get(slot);
+            c.setLatexString(text);
+            components.set(slot, c);
+            //the drawing doesn't show the latex string, only readers of the model need to know
+            publishModel();
         } else {
         }
     }
@@ -415,8 +1191,9 @@ public class CircuitMaker extends JPanel {
      * @return latex parameter of the currently selected component in components
      */
     public String getSelectedComponentLatexString() {
-        if (componentIndexSelected >= 0) {
-            return components.get(componentIndexSelected).getLatexString();
+        int slot = getSelectedSlot();
+        if (slot >= 0) {
+            return components.get(slot).getLatexString();
         } else {
             return "";
         }
@@ -430,44 +1207,187 @@ public class CircuitMaker extends JPanel {
      */
     public void placeComponent() {
         Component c;
-        try {
-            c = new Component(wireStart, new Point2D.Double(xGridPosition - originOffset.getX(), yGridPosition - originOffset.getY()), currentTool);
-        } catch (IllegalArgumentException e) {
-            c = new Component(new Point2D.Double(xGridPosition - originOffset.getX(), yGridPosition - originOffset.getY()), currentTool);
+        if (Component.isPathComponent(currentTool)) {
+            c = new Component(wireStart, new Point2D.Double(xGridPosition, yGridPosition), currentTool);
+        } else {
+            c = new Component(new Point2D.Double(xGridPosition, yGridPosition), currentTool);
         }
-        components.add(c);
-        setSelectedComponentIndex(components.size() - 1);
-        //System.out.println("added component to index " + (components.size() - 1));
+        long id = components.add(c);
+        addToIndexes(components.slotCount() - 1, c);
+        setSelectedComponentId(id);
+        modelChanged(getPaintedArea(c));
+        //System.out.println("added component to index " + (components.slotCount() - 1));
     }
 
     /**
-     * deletes the currently selected component (only called when a user presses
-     * delete while focused on the components listbox in the UI)
+     * deletes every selected component (called when a user presses delete
+     * while focused on the components listbox or the schematic). All of them
+     * are removed in a single pass and the schematic is only redrawn once, the
+     * caller updates the UI component list afterwards.
      *
      */
     public void deleteSelectedComponent() {
-        try {
-            components.remove(componentIndexSelected);
-            componentIndexSelected = (componentIndexSelected > 0) ? componentIndexSelected-- : 0;
-        } catch (ArrayIndexOutOfBoundsException e) {
+        if (selection.isEmpty()) {
+            return;
+        }
+        //like before, the component following the first deleted one becomes selected (the last one if nothing follows)
+        int firstRemoved = selection.nextSetBit(0);
+        long next = -1;
+        for (int a = firstRemoved; a < components.slotCount() && next < 0; a++) {
+            if (!components.isRemoved(a) && !selection.get(a)) {
+                next = components.getId(a);
+            }
+        }
+        for (int a = firstRemoved - 1; a >= 0 && next < 0; a--) {
+            if (!components.isRemoved(a)) {
+                next = components.getId(a);
+            }
+        }
+        removeComponents((BitSet) selection.clone());
+        setSelectedComponentId(next);
+    }
+
+    /**
+     * moves every selected component by the same distance
+     *
+     * @param dx horizontal distance in circuitikz coordinates
+     * @param dy vertical distance in circuitikz coordinates
+     * @return true if anything was moved
+     */
+    public boolean moveSelection(double dx, double dy) {
+        if (selection.isEmpty()) {
+            return false;
+        }
+        Rectangle2D changed = null;
+        for (int a = selection.nextSetBit(0); a >= 0; a = selection.nextSetBit(a + 1)) {
+            Component c = components.get(a);
+            Rectangle2D before = getPaintedArea(c);
+            if (changed == null) {
+                changed = before;
+            } else {
+                changed.add(before);
+            }
+            removeFromIndexes(a, c);
+            c.moveBy(dx, dy);
+            components.set(a, c);
+            addToIndexes(a, c);
+            changed.add(getPaintedArea(c));
+        }
+        modelChanged(changed);
+        return true;
+    }
+
+    /**
+     * gives every selected component the same label
+     *
+     * @param text new label
+     */
+    public void setSelectionLabel(String text) {
+        if (selection.isEmpty()) {
+            return;
+        }
+        Rectangle2D changed = null;
+        for (int a = selection.nextSetBit(0); a >= 0; a = selection.nextSetBit(a + 1)) {
+            Component c = components.get(a);
+            Rectangle2D before = getPaintedArea(c);
+            if (changed == null) {
+                changed = before;
+            } else {
+                changed.add(before);
+            }
+            c.setComponentLabel(text);
+            components.set(a, c);
+            changed.add(getPaintedArea(c));
         }
+        modelChanged(changed);
+    }
+
+    /**
+     * selects every component whose symbol lies completely inside of an area,
+     * the area is looked up in the spatial index
+     *
+     * @param area area in circuitikz coordinates
+     */
+    public void selectInside(Rectangle2D area) {
+        int[] inside = spatialIndex.inside(area, components);
+        selection.clear();
+        for (int index : inside) {
+            selection.set(index);
+        }
+        selectedComponentId = inside.length > 0 ? components.getId(inside[0]) : -1;
+        requestRepaint();
+    }
+
+    /**
+     * @return number of selected components
+     */
+    public int getSelectionSize() {
+        return selection.cardinality();
+    }
+
+    /**
+     * publishes a snapshot of the components as they are now. Readers on
+     * other threads either see the previous version or this one, never a mix
+     * of both.
+     */
+    private void publishModel() {
+        publishedModel.set(components.snapshot());
+    }
+
+    /**
+     * returns the latest published version of the placed components. It
+     * never changes, so it can be read on any thread (exports, rendering)
+     * while the user goes on editing, see ComponentSnapshot.
+     *
+     * @return snapshot of the placed components
+     */
+    public ComponentView getModelSnapshot() {
+        return publishedModel.get();
+    }
+
+    /**
+     * returns the components of a store that weren't removed, in the order
+     * they were placed. Can be called on any thread with a snapshot (see
+     * getModelSnapshot())
+     *
+     * @param store store to read
+     * @return array of all placed components
+     */
+    public static Component[] getPlacedComponents(ComponentView store) {
+        Component[] placed = new Component[store.count()];
+        int found = 0;
+        for (int a = 0; a < store.slotCount(); a++) {
+            if (!store.isRemoved(a)) {
+                placed[found++] = store.get(a);
+            }
+        }
+        return placed;
     }
 
     public String getCircuitXML() {
         String ret = "";
-        for (int a = 0; a < components.size(); a++) {
-            ret += components.get(a).toXML() + "\n";
+        for (int a = 0; a < components.slotCount(); a++) {
+            if (!components.isRemoved(a)) {
+                ret += components.get(a).toXML() + "\n";
+            }
         }
         return ret;
     }
 
     public void loadCircuitFromXML(String xml) {
         String[] coms = xml.split("\n");
-        components.clear();
+        //very large schematics are kept in packed columns, everything else as one object per component
+        components = coms.length >= PACKED_COMPONENT_THRESHOLD ? new PackedComponentStore(coms.length) : new ComponentList();
         Component.resetStatics();
         for (int a = 0; a < coms.length; a++) {
             components.add(Component.getComponentFromXML(coms[a]));
         }
+        spatialIndex.rebuild(components);
+        terminalIndex.rebuild(components);
+        selection.clear();
+        selectedComponentId = -1;
+        hoveredSlot = -1;
+        modelChanged();
     }
 
     /**
@@ -512,8 +1432,8 @@ public class CircuitMaker extends JPanel {
 
         //determine whether we have any mosfets in the placed components, if we do then we need to add some extra formatting 
         boolean containsFet = false;
-        for (int a = 0; a < components.size(); a++) {
-            if (components.get(a).isFet()) {
+        for (int a = 0; a < components.slotCount(); a++) {
+            if (!components.isRemoved(a) && components.get(a).isFet()) {
                 containsFet = true;
                 break;
             }
@@ -526,7 +1446,10 @@ public class CircuitMaker extends JPanel {
         }
 
         //generate latex string for each component placed in the circuitmaker window
-        for (int a = 0; a < components.size(); a++) {
+        for (int a = 0; a < components.slotCount(); a++) {
+            if (components.isRemoved(a)) {
+                continue;
+            }
             output += components.get(a).getLatexLine();
         }
 
@@ -546,6 +1469,12 @@ public class CircuitMaker extends JPanel {
     public void clearSchematic() {
         String output = "";
         components.clear();
+        spatialIndex.clear();
+        terminalIndex.clear();
+        selection.clear();
+        selectedComponentId = -1;
+        hoveredSlot = -1;
+        modelChanged();
         CircuitikzTool.ui.updateComponentList(); //this is very bad and we shouldn't do it this way but eh whatever, update the UI component list (?)
     }
 
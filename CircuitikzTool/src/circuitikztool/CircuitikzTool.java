@@ -6,8 +6,6 @@
 package circuitikztool;
 
 import java.awt.Color;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 import javax.swing.JFrame;
 
 import javax.swing.ImageIcon;
@@ -54,14 +52,7 @@ public class CircuitikzTool extends JFrame {
         Preferences.importPreferences();
         Preferences.ConfigPrefrences();
 
-        while (true) {
-            ui.repaintCircuitMaker();
-            try {
-                Thread.sleep(10);
-            } catch (InterruptedException ex) {
-                Logger.getLogger(CircuitikzTool.class.getName()).log(Level.SEVERE, null, ex);
-            }
-        }
+        //no render loop here, the schematic window repaints itself through its RepaintScheduler whenever something changes
     }
 
 }
@@ -3,10 +3,12 @@ package circuitikztool;
 import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Point;
-import java.awt.Polygon;
 
 import java.awt.Graphics2D; // added
+import java.awt.font.FontRenderContext;
 import java.awt.geom.Point2D; // 2D added
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
 
 /**
  * Component is meant to be a data object for storing all possible component
@@ -18,25 +20,27 @@ import java.awt.geom.Point2D; // 2D added
  */
 public class Component {
 
-    //path specific placement variables
-    Point2D wireStart, wireEnd;
+    //path specific placement variables, packed half grid positions (see HalfGrid)
+    long start, end;
 
-    //non path placement variables
-    Point2D position;
+    //non path placement variables, packed half grid position
+    long position;
 
     String latexParameters = "";          //stores the string which ultimately ends up in the LaTeX output, this is the variable a user modifies when they change the "Component String" field in the UI
     String Label = "";                    //User defined label that is displayed as "Component Label" in UI, meant for the user to help organize their schematic as it suits them
 
+    private LabelCache.Layout layoutLabel;  //laid out Label text, reset whenever the label changes
+
     int componentType;                    //this variable defines what "Type" of component we're using, please reference the constant vairables below for possible values. 
     private boolean pathComponent = true;
 
-    //LaTeX doesn't like 3 terminal devices having the same name, we use this variable so that their labels are iterated everytime a new 3 terminal component is placed. 
-    private static int TransistorCounter = 1;
-    private static int OpAmpCounter = 1;
-    private static int TransformerCounter = 1;
-    private static int BufferCounter = 1;
-    private static int BlockCounter = 1;
-    private static int MixerCounter = 1;
+    //LaTeX doesn't like 3 terminal devices having the same name, we use these counters so that their labels are iterated everytime a new 3 terminal component is placed. 
+    //one counter per device family, see ComponentType
+    private static final int[] deviceCounters = new int[ComponentType.COUNTERS];
+
+    static {
+        resetStatics();
+    }
 
     //circuitikz requires us to give unique labels to components in order to connect nodes to them
     //for transistors and other multi-terminal devices we need to have a unique ID
@@ -95,6 +99,11 @@ public class Component {
     final static int DELETE = 1000;
     final static int CANCEL = 1001;
 
+    //font and padding used for the label box drawn on top of every component
+    final static Font LABEL_FONT = new Font("Dialog", Font.PLAIN, 10);
+    final static int LABEL_FONT_SIZE = 10;
+    final static int LABEL_PADDING = 3;
+
     /**
      * Constructor for component as an option. In some instances (latex string
      * builder window) we need to return a component or a command. this
@@ -127,128 +136,21 @@ public class Component {
      * above for valid non-path components.
      */
     public Component(Point2D position, int componentSelected) {
-        this.position = position;                                //pass the input parameter to the object
+        this.position = HalfGrid.pack(position);                 //pass the input parameter to the object, snapped to the half grid
 
-        /* Depending on the component selected we need to initalize the string parameter's such that the latex output is correct
-        The values passed into latexParameters and Label are meant to be "template" values  
-        when adding a non-path component it needs to be added ONLY to this constructor, the fact that this constructor throws an exception when
-        a path component is input into it is very important to the functioning of the program.
+        /* The type table holds the "template" values for latexParameters and Label so that the latex output is correct.
+        when adding a non-path component it needs a non-path entry in ComponentType, this constructor refuses path 
+        components (and anything else without a non-path entry).
          */
-        switch (componentSelected) {
-            case TRANSISTOR_NPN:
-                deviceID = TransistorCounter++;
-                latexParameters = "node[npn](Q" + deviceID + "){Q" + deviceID + "}";
-                Label = "NPN Transistor";
-                break;
-            case TRANSISTOR_PNP:
-                deviceID = TransistorCounter++;
-                latexParameters = "node[pnp](Q" + deviceID + "){Q" + deviceID + "}";
-                Label = "PNP Transistor";
-                break;
-            case NMOS:
-                deviceID = TransistorCounter++;
-                latexParameters = "node[nmos](Q" + deviceID + "){Q" + deviceID + "}";
-                Label = "N-MOS";
-                break;
-            case NIGBT:
-                deviceID = TransistorCounter++;
-                latexParameters = "node[nigbt](Q" + deviceID + "){Q" + deviceID + "}";
-                Label = "N-IGBT";
-                break;
-            case PIGBT:
-                deviceID = TransistorCounter++;
-                latexParameters = "node[pigbt](Q" + deviceID + "){Q" + deviceID + "}";
-                Label = "P-IGBT";
-                break;
-            case PMOS:
-                deviceID = TransistorCounter++;
-                latexParameters = "node[pmos](Q" + deviceID + "){Q" + deviceID + "}";
-                Label = "P-MOS";
-                break;
-            case GROUND_NODE:
-                latexParameters = "node[ground]{}";
-                Label = "GND";
-                break;
-            case VCC_NODE:
-                latexParameters = "node[vcc]{VCC}";
-                Label = "VCC";
-                break;
-            case VSS_NODE:
-                latexParameters = "node[vss]{VSS}";
-                Label = "VSS";
-                break;
-            case OPAMP_3TERMINAL:
-                //3 terminal and 5 terminal opamps are actually identical in terms of their 
-                //original template string, however we have to treat them differently in the latex output
-                //and in the drawing
-                deviceID = OpAmpCounter++;
-                latexParameters = "node[op amp,scale=1.02] (opamp" + deviceID + ") {}"; // mod
-                Label = "3T OpAmp";
-                break;
-            case OPAMP_5TERMINAL:
-                deviceID = OpAmpCounter++;
-                latexParameters = "node[op amp,scale=2.04] (opamp" + deviceID + ") {}";
-                Label = "5-Term Opamp";
-                break;
-            case TRANSFORMER:
-                deviceID = TransformerCounter++;
-                latexParameters = "node[transformer,scale=.952] (T" + deviceID + ") {}";
-                Label = "Transformer";
-                break;
-            case TRANSFORMER_WITH_CORE:
-                deviceID = TransformerCounter++;
-                latexParameters = "node[transformer core,scale=.952] (T" + deviceID + ") {}";
-                Label = "Transformer w/ Core";
-                break;
-
-            case BUFFER:
-                deviceID = BufferCounter++;
-                latexParameters = "node[buffer, scale=1] (buffer" + deviceID + ") {}";
-                Label = "Buffer";
-                break;
-            case FD_OPAMP:
-                deviceID = OpAmpCounter++;
-                latexParameters = "node[fd op amp, scale=1.02] (opamp" + deviceID + ") {}";
-                Label = "FD OpAmp";
-                break;
-            case GM_AMP:
-                deviceID = OpAmpCounter++;
-                latexParameters = "node[gm amp, scale=1.02] (opamp" + deviceID + ") {}";
-                Label = "Gm cell";
-                break;
-            case BLOCK:
-                deviceID = BlockCounter++;
-                latexParameters = "node[block, scale=1] (block" + deviceID + ") {}";
-                Label = "Block";
-                break;
-
-            case SACDC:
-                deviceID = BlockCounter++;
-                latexParameters = "node[sacdc, scale=1] (block" + deviceID + ") {}";
-                Label = "SACDC";
-                break;
-            case SDCAC:
-                deviceID = BlockCounter++;
-                latexParameters = "node[sdcac, scale=1] (block" + deviceID + ") {}";
-                Label = "SDCAC";
-                break;
-
-            case MIXER:
-                deviceID = MixerCounter++;
-                latexParameters = "node[mixer, scale=1] (mixer" + deviceID + ") {}";
-                Label = "X";
-                break;
-            case NODE:
-                latexParameters = "node[] {$x$}";
-                Label = "x";
-                break;
-            
-
-            default:
-                //this exception is important in isPathComponent();
-                //in the unlikely event that a path component some how used this constructor throw an error to alert the nearest code monkey
-                throw new IllegalArgumentException("No NON-PATH component type exists for constant " + componentSelected);
+        ComponentType type = ComponentType.find(componentSelected);
+        if (type == null || type.path) {
+            throw new IllegalArgumentException("No NON-PATH component type exists for constant " + componentSelected);
         }
+        if (type.counter != ComponentType.NO_COUNTER) {
+            deviceID = deviceCounters[type.counter]++;
+        }
+        latexParameters = type.getLatexTemplate(deviceID);
+        Label = type.label;
         pathComponent = false; //simple boolean for the class to know whether or not it's a pathing variable (there are other ways to test this but this is the easiest) 
         componentType = componentSelected; //set this object's componentType to the passed in value
     }
@@ -256,13 +158,9 @@ public class Component {
     /**
      * Constructor for PATH components including Wires, resistors, capacitors,
      * etc. Please consult the defined constants in CircuitMaker to determine
-     * proper input values. Non-path components should not use this constructor,
-     * the fact that this constructor throws an error when a non path component
-     * is passed into it is important to the functioning of the program.
-     *
-     * this constructor also serves as the "ultimate list" of which components
-     * are path components and which components are not path components, please
-     * see isPathComponent()
+     * proper input values. Non-path components should not use this
+     * constructor, it throws an IllegalArgumentException when a non path
+     * component is passed into it.
      *
      * @param wireStart starting position of the path component (position is in
      * terms of circuitikz coordinates)
@@ -272,71 +170,49 @@ public class Component {
      * constants at the top of this class for acceptable values
      */
     public Component(Point2D wireStart, Point2D wireEnd, int componentSelected) {
-        //pass start and end positions of the wire to the object
-        this.wireStart = wireStart;
-        this.wireEnd = wireEnd;
-
-        /* Depending on the component selected we need to initalize the string parameter's such that the latex output is correct
-        The values passed into latexParameters and Label are meant to be "template" values  
-        when adding a path component it needs to be added ONLY using this constructor, the fact that this constructor throws an exception when
-        a non-path component is input into it is very important to the functioning of the program.
-         */
-        switch (componentSelected) {
-            case PATH:
-                latexParameters = "to[short]";
-                Label = "Wire";
-                break;
-            case RESISTOR:
-                latexParameters = "to[R,l=$R$]";
-                Label = "R";
-                break;
-            case CAPACITOR:
-                latexParameters = "to[C,l=$C$]";
-                Label = "C";
-                break;
-            case INDUCTOR:
-                latexParameters = "to[L,l=$L$]";
-                Label = "L";
-                break;
-            case DIODE:
-                latexParameters = "to[D,l=$D$]";
-                Label = "D";
-                break;
-            case VOLTAGE_SOURCE:
-                latexParameters = "to[V,l=$V$]";
-                Label = "V";
-                break;
-            case CURRENT_SOURCE:
-                latexParameters = "to[isource,l=$I$]";
-                Label = "I";
-                break;
+        //pass start and end positions of the wire to the object, snapped to the half grid
+        this.start = HalfGrid.pack(wireStart);
+        this.end = HalfGrid.pack(wireEnd);
 
-            case SWITCH_NOS:
-                latexParameters = "to[nos]";
-                Label = "NOS";
-                break;
-            case ARROW:
-                latexParameters = "--";
-                Label = "->";
-                break;
-            case N_ARROW:
-                latexParameters = "-- node[at end, xshift=0.25cm, yshift=0.25cm] {$-$}";
-                Label = "-> -";
-                break;
-            case IMPEDANCE:
-                latexParameters = "to[european resistor,l=$Z$]";
-                Label = "Z";
-                break;
-
-
-            default:
-                //this exception is important in isPathComponent();
-                //in the unlikely event that a non-path component some how used this constructor throw an error to alert the nearest code monkey
-                throw new IllegalArgumentException("No PATH component type exists for constant " + componentSelected);
+        /* The type table holds the "template" values for latexParameters and Label so that the latex output is correct.
+        when adding a path component it needs a path entry in ComponentType, this constructor refuses non-path components.
+         */
+        ComponentType type = ComponentType.find(componentSelected);
+        if (type == null || !type.path) {
+            throw new IllegalArgumentException("No PATH component type exists for constant " + componentSelected);
         }
+        latexParameters = type.latexTemplate;
+        Label = type.label;
         componentType = componentSelected; //pass the selected component value to the object
     }
 
+    /**
+     * creates a component from values that are already known, without
+     * touching the device counters. Used by stores that don't keep component
+     * objects around (see PackedComponentStore).
+     *
+     * @param componentType type of the component
+     * @param start packed start of a path component, position of a non-path
+     * component (see HalfGrid)
+     * @param end packed end of a path component, ignored otherwise
+     * @param label component label
+     * @param latexParameters latex parameter string
+     * @param deviceID device id used in the latex output
+     */
+    Component(int componentType, long start, long end, String label, String latexParameters, int deviceID) {
+        this.componentType = componentType;
+        this.pathComponent = ComponentType.get(componentType).path;
+        if (pathComponent) {
+            this.start = start;
+            this.end = end;
+        } else {
+            this.position = start;
+        }
+        this.Label = label;
+        this.latexParameters = latexParameters;
+        this.deviceID = deviceID;
+    }
+
     public int getDeviceID(){
       return deviceID;
     }
@@ -377,14 +253,14 @@ public class Component {
         String ret = "<component>";
         if (pathComponent) {
             ret += "<pathComponent>true</pathComponent>";
-            ret += "<start-x>" + wireStart.getX() + "</start-x>";
-            ret += "<start-y>" + wireStart.getY() + "</start-y>";
-            ret += "<end-x>" + wireEnd.getX() + "</end-x>";
-            ret += "<end-y>" + wireEnd.getY() + "</end-y>";
+            ret += "<start-x>" + HalfGrid.x(start) + "</start-x>";
+            ret += "<start-y>" + HalfGrid.y(start) + "</start-y>";
+            ret += "<end-x>" + HalfGrid.x(end) + "</end-x>";
+            ret += "<end-y>" + HalfGrid.y(end) + "</end-y>";
         } else {
             ret += "<pathComponent>false</pathComponent>";
-            ret += "<position-x>" + position.getX() + "</position-x>";
-            ret += "<position-y>" + position.getY() + "</position-y>";
+            ret += "<position-x>" + HalfGrid.x(position) + "</position-x>";
+            ret += "<position-y>" + HalfGrid.y(position) + "</position-y>";
         }
         ret += "<type>" + componentType + "</type>";
         ret += "<label>" + Label + "</label>";
@@ -394,12 +270,7 @@ public class Component {
     }
 
     public static void resetStatics() {
-        TransistorCounter = 1;
-        OpAmpCounter = 1;
-        TransformerCounter = 1;
-        BufferCounter = 1;
-        BlockCounter = 1;
-        MixerCounter = 1;
+        Arrays.fill(deviceCounters, 1);
     }
 
     /**
@@ -415,21 +286,16 @@ public class Component {
     /**
      * Since the circuit maker class will need to know which indexes are pathing
      * components and which ones aren't we use this function to test a given
-     * index to determine whether or not a component is a path component. This
-     * relys on the constructor's being properly split between pathing and non
-     * pathing components.
+     * index to determine whether or not a component is a path component. The
+     * answer comes from the ComponentType table.
      *
      * @param componentIndex component index relating to one of the constants
-     * defined at the top of CircuitMaker class
+     * defined at the top of Component class
      * @return true if path component, false if not path component
      */
     public static boolean isPathComponent(int componentIndex) {
-        try {
-            Component c = new Component(new Point2D.Double(0, 0), new Point2D.Double(0, 0), componentIndex);
-            return true;
-        } catch (IllegalArgumentException e) {
-            return false;
-        }
+        ComponentType type = ComponentType.find(componentIndex);
+        return type != null && type.path;
     }
 
     /**
@@ -448,6 +314,20 @@ public class Component {
      * @param selected whether or not this component is currently selected
      */
     public void paint(Graphics g2d, double gridSize, Point2D offset, boolean selected) {
+        paintSymbol(g2d, gridSize, offset, selected);
+        paintLabel(g2d, gridSize, offset, selected);
+    }
+
+    /**
+     * paints only the symbol of the component, without its label. See
+     * paint() for the parameters.
+     *
+     * @param g2d Graphics object for the components to be draw onto
+     * @param gridSize current gridSize of the graphics object
+     * @param offset current offset of the grid
+     * @param selected whether or not this component is currently selected
+     */
+    public void paintSymbol(Graphics g2d, double gridSize, Point2D offset, boolean selected) {
         //if a component is selected we should set its color differently. 
         if (selected) {
             g2d.setColor(Preferences.selectedColor);
@@ -463,38 +343,57 @@ public class Component {
          */
         if (pathComponent) {
             g2d.drawLine(
-                  (int)  (gridSize * (wireStart.getX() + offset.getX())),
-                  (int)  (gridSize * (wireStart.getY() + offset.getY())),
-                  (int)  (gridSize * (wireEnd.getX() + offset.getX())),
-                  (int)  (gridSize * (wireEnd.getY() + offset.getY()))
+                  (int)  (gridSize * (HalfGrid.x(start) + offset.getX())),
+                  (int)  (gridSize * (HalfGrid.y(start) + offset.getY())),
+                  (int)  (gridSize * (HalfGrid.x(end) + offset.getX())),
+                  (int)  (gridSize * (HalfGrid.y(end) + offset.getY()))
+            );
+        } else {
+            //every non-path component has a precompiled glyph, we just have to place it
+            ComponentType.get(componentType).glyph.paint((Graphics2D) g2d, gridSize, HalfGrid.x(position) + offset.getX(), HalfGrid.y(position) + offset.getY(), selected);
+        }
+    }
+
+    /**
+     * paints a cheap stand-in for the component, used when the schematic is
+     * zoomed out too far for the details of a symbol to be visible. path
+     * components are still drawn as a line, everything else becomes a filled
+     * box the size of its symbol. See paint() for the parameters.
+     *
+     * @param g2d Graphics object for the components to be draw onto
+     * @param gridSize current gridSize of the graphics object
+     * @param offset current offset of the grid
+     * @param selected whether or not this component is currently selected
+     */
+    public void paintSimplified(Graphics g2d, double gridSize, Point2D offset, boolean selected) {
+        g2d.setColor(selected ? Preferences.selectedColor : Preferences.componentColor);
+        if (pathComponent) {
+            g2d.drawLine(
+                    (int) (gridSize * (HalfGrid.x(start) + offset.getX())),
+                    (int) (gridSize * (HalfGrid.y(start) + offset.getY())),
+                    (int) (gridSize * (HalfGrid.x(end) + offset.getX())),
+                    (int) (gridSize * (HalfGrid.y(end) + offset.getY()))
             );
-        } else if (componentType == VCC_NODE) {
-            drawVCCNode(g2d, gridSize, position.getX() + offset.getX(), position.getY() + offset.getY());
-        } else if (componentType == GROUND_NODE) {
-            drawGNDNode(g2d, gridSize, position.getX() + offset.getX(), position.getY() + offset.getY());
-        } else if (componentType == VSS_NODE) {
-            drawVSSNode(g2d, gridSize, position.getX() + offset.getX(), position.getY() + offset.getY());
-        } else if (componentType == OPAMP_3TERMINAL || componentType == OPAMP_5TERMINAL) {
-            drawOpamp(g2d, gridSize, position.getX() + offset.getX(), position.getY() + offset.getY(), selected, componentType);
-        } else if (componentType == BUFFER) {
-            drawBuffer(g2d, gridSize, position.getX() + offset.getX(), position.getY() + offset.getY(), selected);
-        } else if (componentType == FD_OPAMP) {
-            drawFDOpAmp(g2d, gridSize, position.getX() + offset.getX(), position.getY() + offset.getY(), selected);
-        } else if (componentType == GM_AMP) {
-            drawGMAmp(g2d, gridSize, position.getX() + offset.getX(), position.getY() + offset.getY(), selected);
-        } else if (componentType == BLOCK || componentType == SACDC || componentType == SDCAC) {
-            drawBlock(g2d, gridSize, position.getX() + offset.getX(), position.getY() + offset.getY(), selected);
-        } else if (componentType == MIXER) {
-            drawMixer(g2d, gridSize, position.getX() + offset.getX(), position.getY() + offset.getY(), selected);
-        } else if (componentType == NODE) {
-            drawNode(g2d, gridSize, position.getX() + offset.getX(), position.getY() + offset.getY(), selected);
-        } else if (componentType == TRANSFORMER || componentType == TRANSFORMER_WITH_CORE) {
-            drawTransformer(g2d, gridSize, position.getX() + offset.getX(), position.getY() + offset.getY(), selected);
         } else {
-            //if it's not any of those then it's a three terminal transistor so we just draw the transistor
-            drawTransistor(g2d, gridSize, position.getX() + offset.getX(), position.getY() + offset.getY(), selected);
+            Rectangle2D b = getBounds();
+            int x = (int) (gridSize * (b.getX() + offset.getX()));
+            int y = (int) (gridSize * (b.getY() + offset.getY()));
+            g2d.fillRect(x, y,
+                    Math.max(1, (int) (gridSize * (b.getMaxX() + offset.getX())) - x),
+                    Math.max(1, (int) (gridSize * (b.getMaxY() + offset.getY())) - y));
         }
+    }
 
+    /**
+     * paints only the label box of the component. See paint() for the
+     * parameters.
+     *
+     * @param g2d Graphics object for the components to be draw onto
+     * @param gridSize current gridSize of the graphics object
+     * @param offset current offset of the grid
+     * @param selected whether or not this component is currently selected
+     */
+    public void paintLabel(Graphics g2d, double gridSize, Point2D offset, boolean selected) {
         /*
                     this section of code implements the "Draw label to wire" functionality of the circuitmaker, 
                 this way the user can always see what the label of any component is while they're working on the 
@@ -502,37 +401,18 @@ public class Component {
                 we first calculate the midpoint which is where we place the label. we then fill the background of the string black for visibility 
                 then we draw the string
          */
-        int fontSize = 10;
-        g2d.setFont(new Font("Dialog", Font.PLAIN, fontSize));
-        Point2D labelPosition;
-
-        /*            if the component we're drawing is a path component then we want to place the label right on the midpoint
-        otherwise we can just place it at the position of the component.        
-        since the user is allowed to zoom the position of the label needs to be calculated as a fraction of the
-        gridSize
-         */
-        if (isPathComponent()) {
-            labelPosition = new Point2D.Double(
-                    ( wireStart.getX() * gridSize + wireEnd.getX() * gridSize) / 2,
-                    ( wireStart.getY() * gridSize + wireEnd.getY() * gridSize) / 2
-            );
-        } else if (componentType == VCC_NODE) {
-            //vcc nodes have the label above the drawn component
-            labelPosition = new Point2D.Double(position.getX() * gridSize, position.getY() * gridSize - 2 * gridSize / 3);
-        } else if (componentType == GROUND_NODE || componentType == VSS_NODE) {
-            //VSS and GND nodes have the label displayed below the component
-            labelPosition = new Point2D.Double(position.getX() * gridSize, position.getY() * gridSize + 2 * gridSize / 3);
-        } else {
-            //if the component doesn't need any special label placement and isn't a pathing component
-            //then we can just place the label directly on the position of the component
-            labelPosition = new Point2D.Double(position.getX() * gridSize, position.getY() * gridSize);
-        }
+        int fontSize = LABEL_FONT_SIZE;
+        LabelCache.Layout label = getLayoutLabel(((Graphics2D) g2d).getFontRenderContext());
 
-        //calculate width of the string itself
-        int stringWidth = g2d.getFontMetrics().stringWidth(Label);
+        //since the user is allowed to zoom the position of the label needs to be calculated as a fraction of the gridSize
+        Point2D labelAnchor = getLabelAnchor();
+        Point2D labelPosition = new Point2D.Double(labelAnchor.getX() * gridSize, labelAnchor.getY() * gridSize);
+
+        //width of the string itself, measured once when the label was laid out
+        int stringWidth = label.width;
 
         //padding of the label (how many pixels of black space around the text before the border) 
-        int boxPadding = 3;
+        int boxPadding = LABEL_PADDING;
 
         //create bounding box for the string
         g2d.setColor(Preferences.backgroundColor);
@@ -548,7 +428,148 @@ public class Component {
         g2d.setColor(Preferences.componentColor);
         g2d.drawRect((int) (labelPosition.getX() + offset.getX() * gridSize - stringWidth / 2 - boxPadding), (int) (labelPosition.getY() + offset.getY() * gridSize + 2 - fontSize - boxPadding), stringWidth + boxPadding * 2, fontSize + boxPadding * 2);
         //draw label string
-        g2d.drawString(Label, (int) (labelPosition.getX() + offset.getX() * gridSize - stringWidth / 2), (int) (labelPosition.getY() + offset.getY() * gridSize + 2));
+        ((Graphics2D) g2d).drawGlyphVector(label.glyphs, (int) (labelPosition.getX() + offset.getX() * gridSize - stringWidth / 2), (int) (labelPosition.getY() + offset.getY() * gridSize + 2));
+    }
+
+    /**
+     * returns the point (in circuitikz coordinates) the label box is centered
+     * on. path components have their label on the midpoint of the path,
+     * everything else is moved up or down from the position of the component
+     * as its ComponentType says (VCC nodes above and GND/VSS nodes below the
+     * symbol).
+     *
+     * @return label anchor in circuitikz coordinates
+     */
+    private Point2D getLabelAnchor() {
+        return pathComponent ? getLabelAnchor(componentType, start, end) : getLabelAnchor(componentType, position, 0);
+    }
+
+    /**
+     * returns the point the label of a component that is only known by its
+     * values is drawn around
+     *
+     * @param componentType type of the component
+     * @param start packed start of a path component, position of a non-path
+     * component (see HalfGrid)
+     * @param end packed end of a path component, ignored otherwise
+     * @return label anchor in circuitikz coordinates
+     */
+    static Point2D getLabelAnchor(int componentType, long start, long end) {
+        ComponentType type = ComponentType.get(componentType);
+        if (type.path) {
+            return new Point2D.Double((HalfGrid.x(start) + HalfGrid.x(end)) / 2, (HalfGrid.y(start) + HalfGrid.y(end)) / 2);
+        }
+        return new Point2D.Double(HalfGrid.x(start), HalfGrid.y(start) + type.labelOffsetY);
+    }
+
+    /**
+     * returns how far the label box of a component can reach from its anchor
+     * (see getLabelBounds()), without laying out the label
+     *
+     * @param renderContext font render context of the graphics object the
+     * label is drawn onto
+     * @param gridSize current size of the grid
+     * @param characters number of characters of the longest label
+     * @return reach to either side (x) and up or down (y) in circuitikz
+     * coordinates
+     */
+    static Point2D getLabelReach(FontRenderContext renderContext, double gridSize, int characters) {
+        //no character is wider than the widest one of the font, characters taken from fallback fonts are about as wide as the font is high
+        double characterWidth = Math.max(LABEL_FONT.getMaxCharBounds(renderContext).getWidth(), LABEL_FONT_SIZE);
+        return new Point2D.Double((characters * characterWidth / 2 + LABEL_PADDING + 2) / gridSize, (LABEL_FONT_SIZE + LABEL_PADDING + 2) / gridSize);
+    }
+
+    /**
+     * returns the area (in circuitikz coordinates) covered by the drawn symbol
+     * of this component, not including its label. Used by the CircuitMaker to
+     * skip components that are outside of the visible part of the schematic.
+     *
+     * @return bounding box of the component symbol in circuitikz coordinates
+     */
+    public Rectangle2D getBounds() {
+        return pathComponent ? getBounds(componentType, start, end) : getBounds(componentType, position, 0);
+    }
+
+    /**
+     * returns the area covered by the symbol of a component that is only
+     * known by its values, used by stores that don't keep component objects
+     * around
+     *
+     * @param componentType type of the component
+     * @param start packed start of a path component, position of a non-path
+     * component (see HalfGrid)
+     * @param end packed end of a path component, ignored otherwise
+     * @return bounding box of the symbol in circuitikz coordinates
+     */
+    static Rectangle2D getBounds(int componentType, long start, long end) {
+        ComponentType type = ComponentType.get(componentType);
+        double x = HalfGrid.x(start), y = HalfGrid.y(start);
+        if (type.path) {
+            double endX = HalfGrid.x(end), endY = HalfGrid.y(end);
+            return new Rectangle2D.Double(Math.min(x, endX), Math.min(y, endY), Math.abs(endX - x), Math.abs(endY - y));
+        }
+
+        //the glyph knows the extents of the symbol relative to the position of the component
+        Rectangle2D glyph = type.glyph.getBounds();
+        return new Rectangle2D.Double(x + glyph.getX(), y + glyph.getY(), glyph.getWidth(), glyph.getHeight());
+    }
+
+    /**
+     * moves the component without changing anything else about it
+     *
+     * @param dx horizontal distance in circuitikz coordinates
+     * @param dy vertical distance in circuitikz coordinates
+     */
+    public void moveBy(double dx, double dy) {
+        //components stay on the half grid, the distance is snapped to it
+        int stepsX = HalfGrid.step(dx), stepsY = HalfGrid.step(dy);
+        if (pathComponent) {
+            start = HalfGrid.translate(start, stepsX, stepsY);
+            end = HalfGrid.translate(end, stepsX, stepsY);
+        } else {
+            position = HalfGrid.translate(position, stepsX, stepsY);
+        }
+    }
+
+    /**
+     * returns the laid out label text of this component. the layout is shared
+     * through the LabelCache and remembered by the component until its label
+     * changes.
+     *
+     * @param renderContext font render context of the graphics object the
+     * label is drawn onto
+     * @return laid out label
+     */
+    private LabelCache.Layout getLayoutLabel(FontRenderContext renderContext) {
+        LabelCache.Layout label = layoutLabel;
+        if (label == null || !label.matches(Label, renderContext)) {
+            label = LabelCache.get(Label, renderContext);
+            layoutLabel = label;
+        }
+        return label;
+    }
+
+    /**
+     * returns the area (in circuitikz coordinates) covered by the label box of
+     * this component. The label is drawn with a fixed font size so its size
+     * in circuitikz coordinates depends on the current grid size.
+     *
+     * @param renderContext font render context of the graphics object the
+     * label is drawn onto
+     * @param gridSize current size of the grid
+     * @return bounding box of the label in circuitikz coordinates
+     */
+    public Rectangle2D getLabelBounds(FontRenderContext renderContext, double gridSize) {
+        Point2D anchor = getLabelAnchor();
+        int stringWidth = getLayoutLabel(renderContext).width;
+        //one extra pixel on each side for the border that is drawn around the box
+        double width = (stringWidth + 2 * LABEL_PADDING + 2) / gridSize;
+        double height = (LABEL_FONT_SIZE + 2 * LABEL_PADDING + 2) / gridSize;
+        return new Rectangle2D.Double(
+                anchor.getX() - (stringWidth / 2 + LABEL_PADDING + 1) / gridSize,
+                anchor.getY() + (1 - LABEL_FONT_SIZE - LABEL_PADDING) / gridSize,
+                width,
+                height);
     }
 
     /**
@@ -566,6 +587,7 @@ public class Component {
      */
     public void setComponentLabel(String text) {
         Label = text;
+        layoutLabel = null;
     }
 
     /**
@@ -596,6 +618,21 @@ public class Component {
         latexParameters = text;
     }
 
+    /**
+     * replaces the label and latex parameters with shared strings holding the
+     * same text: the defaults of the component type if they weren't changed,
+     * otherwise the copy kept by the pool. Strings can't change, editing a
+     * component later just gives it a new string and leaves the shared one
+     * alone.
+     *
+     * @param pool pool of the schematic the component belongs to
+     */
+    void shareText(StringPool pool) {
+        ComponentType type = ComponentType.get(componentType);
+        Label = type.label.equals(Label) ? type.label : pool.intern(Label);
+        latexParameters = type.latexTemplate.equals(latexParameters) ? type.latexTemplate : pool.intern(latexParameters);
+    }
+
     /**
      * returns the beginning coordinate of a path component, throws
      * IllegalStateException if component is not a path component
@@ -605,7 +642,7 @@ public class Component {
      */
     public Point2D getStart() {
         if (pathComponent) {
-            return wireStart;
+            return HalfGrid.toPoint(start);
         } else {
             throw new IllegalStateException();
         }
@@ -620,7 +657,7 @@ public class Component {
      */
     public Point2D getEnd() {
         if (pathComponent) {
-            return wireEnd;
+            return HalfGrid.toPoint(end);
         } else {
             throw new IllegalStateException();
         }
@@ -630,7 +667,7 @@ public class Component {
         if (pathComponent) {
             throw new IllegalStateException();
         } else {
-            return position;
+            return HalfGrid.toPoint(position);
         }
     }
 
@@ -644,16 +681,55 @@ public class Component {
         if (isPathComponent()) {
             String retString = "";
             retString += Label + " ";
-            retString += "[" + wireStart.getX() + "," + wireStart.getY() + "] to [" + wireEnd.getX() + "," + wireEnd.getY() + "]";
+            retString += "[" + HalfGrid.x(start) + "," + HalfGrid.y(start) + "] to [" + HalfGrid.x(end) + "," + HalfGrid.y(end) + "]";
             return retString;
         } else {
             String retString = "";
             retString += Label + " ";
-            retString += "[" + position.getX() + "," + position.getY() + "] ";
+            retString += "[" + HalfGrid.x(position) + "," + HalfGrid.y(position) + "] ";
             return retString;
         }
     }
 
+    /**
+     * returns the points (in circuitikz coordinates) wires can be connected
+     * to: both ends of a path component, the position of nodes and the grid
+     * points getLatexLine() breaks the terminals of multi-terminal devices out
+     * to. Outputs of amplifiers aren't broken out, so they aren't included.
+     *
+     * @return terminal positions, empty if the component has none
+     */
+    public Point2D[] getTerminals() {
+        Point2D[] terminals = new Point2D[getTerminalCount()];
+        for (int a = 0; a < terminals.length; a++) {
+            terminals[a] = HalfGrid.toPoint(getTerminal(a));
+        }
+        return terminals;
+    }
+
+    /**
+     * @return number of terminals, see getTerminals()
+     */
+    public int getTerminalCount() {
+        return pathComponent ? 2 : ComponentType.get(componentType).terminals.length / 2;
+    }
+
+    /**
+     * returns a terminal as a packed half grid position, lets the terminals be
+     * looked at without creating any objects
+     *
+     * @param terminal number of the terminal, less than getTerminalCount()
+     * @return packed position of the terminal (see HalfGrid)
+     */
+    public long getTerminal(int terminal) {
+        if (pathComponent) {
+            return terminal == 0 ? start : end;
+        }
+        //the offsets of the terminals come from the type table
+        int[] offsets = ComponentType.get(componentType).terminals;
+        return HalfGrid.translate(position, offsets[2 * terminal], offsets[2 * terminal + 1]);
+    }
+
     /**
      * outputs the formatted LaTeX line representing this component, in special
      * cases this function may return multiple lines of LaTeX code
@@ -665,14 +741,16 @@ public class Component {
 
         //path components are simple, just insert the label between the start and end position. 
         if (isPathComponent()) {
+            double startX = HalfGrid.x(start), startY = HalfGrid.y(start);
+            double endX = HalfGrid.x(end), endY = HalfGrid.y(end);
             if (componentType == ARROW || componentType == N_ARROW){
                 output += "\\draw [->] (";
             } else {
                 output += "\\draw (";
             }
-            output +=  wireStart.getX() + "," +  (-1) * (wireStart.getY()) + ") ";
+            output +=  startX + "," +  (-1) * (startY) + ") ";
             output += getLatexString() + " ";
-            output += "(" +  getEnd().getX() + "," +  (-1) * getEnd().getY() + ");";
+            output += "(" +  endX + "," +  (-1) * endY + ");";
         } else {
 
             /*to deal with multi-terminal and other non-path components we have to consider special cases.             
@@ -681,95 +759,96 @@ public class Component {
             together in the final output, there are much better and more human-readable ways to do this in CircuiTikz however those are much more difficult to implement
             and for the time being this serves most of the functionality at the cost of outputing more code. 
              */
+            double x = HalfGrid.x(position), y = HalfGrid.y(position);
             output += "\\draw (";
             if (componentType == NODE){
-                output +=  position.getX() + "," +  (-1) * (position.getY() + 0.3) + ") ";
+                output +=  x + "," +  (-1) * (y + 0.3) + ") ";
             }
             else {
-                output +=  position.getX() + "," +  (-1) * (position.getY()) + ") ";
+                output +=  x + "," +  (-1) * (y) + ") ";
             }
             output += getLatexString() + ";";
 
             switch (componentType) {
                 case TRANSISTOR_NPN:
                     //breakout the BJT's terminals to fit with the current grid system
-                    output += "\\draw (Q" + deviceID + ".C) to[short] (" +  position.getX() + "," +  (-1) * (position.getY() - 1) + ");\n";
-                    output += "\\draw (Q" + deviceID + ".E) to[short] (" +  position.getX() + "," +  (-1) * (position.getY() + 1) + ");\n";
-                    output += "\\draw (Q" + deviceID + ".B) to[short] (" +  (position.getX() - 1) + "," +  (-1) * (position.getY()) + ");";
+                    output += "\\draw (Q" + deviceID + ".C) to[short] (" +  x + "," +  (-1) * (y - 1) + ");\n";
+                    output += "\\draw (Q" + deviceID + ".E) to[short] (" +  x + "," +  (-1) * (y + 1) + ");\n";
+                    output += "\\draw (Q" + deviceID + ".B) to[short] (" +  (x - 1) + "," +  (-1) * (y) + ");";
                     break;
                 case TRANSISTOR_PNP:
                     //breakout the BJT's terminals to fit with the current grid system
-                    output += "\\draw (Q" + deviceID + ".E) to[short] (" + position.getX() + "," + (-1) * (position.getY() - 1) + ");\n";
-                    output += "\\draw (Q" + deviceID + ".C) to[short] (" + position.getX() + "," +  (-1) * (position.getY() + 1) + ");\n";
-                    output += "\\draw (Q" + deviceID + ".B) to[short] (" + (position.getX() - 1) + "," +  (-1) * (position.getY()) + ");";
+                    output += "\\draw (Q" + deviceID + ".E) to[short] (" + x + "," + (-1) * (y - 1) + ");\n";
+                    output += "\\draw (Q" + deviceID + ".C) to[short] (" + x + "," +  (-1) * (y + 1) + ");\n";
+                    output += "\\draw (Q" + deviceID + ".B) to[short] (" + (x - 1) + "," +  (-1) * (y) + ");";
                     break;
                 case NMOS:
                     //breakout the fet's terminals to fit with the current grid system:
-                    output += "\\draw (Q" + deviceID + ".D) to[short] (" +  position.getX() + "," +  (-1) * (position.getY() - 1) + ");\n";
-                    output += "\\draw (Q" + deviceID + ".S) to[short] (" +  position.getX() + "," +  (-1) * (position.getY() + 1) + ");\n";
-                    output += "\\draw (Q" + deviceID + ".G) to[short] (" +  (position.getX() - 1) + "," +  (-1) * (position.getY()) + ");";
+                    output += "\\draw (Q" + deviceID + ".D) to[short] (" +  x + "," +  (-1) * (y - 1) + ");\n";
+                    output += "\\draw (Q" + deviceID + ".S) to[short] (" +  x + "," +  (-1) * (y + 1) + ");\n";
+                    output += "\\draw (Q" + deviceID + ".G) to[short] (" +  (x - 1) + "," +  (-1) * (y) + ");";
                     break;
                 case PMOS:
                     //breakout the fets's terminals to fit with the current grid system:
-                    output += "\\draw (Q" + deviceID + ".S) to[short] (" +  position.getX() + "," +  (-1) * (position.getY() - 1) + ");\n";
-                    output += "\\draw (Q" + deviceID + ".D) to[short] (" +  position.getX() + "," +  (-1) * (position.getY() + 1) + ");\n";
-                    output += "\\draw (Q" + deviceID + ".G) to[short] (" +  (position.getX() - 1) + "," +  (-1) * (position.getY()) + ");";
+                    output += "\\draw (Q" + deviceID + ".S) to[short] (" +  x + "," +  (-1) * (y - 1) + ");\n";
+                    output += "\\draw (Q" + deviceID + ".D) to[short] (" +  x + "," +  (-1) * (y + 1) + ");\n";
+                    output += "\\draw (Q" + deviceID + ".G) to[short] (" +  (x - 1) + "," +  (-1) * (y) + ");";
                     break;
                 case NIGBT:
                     //breakout the IGBT's terminals to fit with the current grid system:
-                    output += "\\draw (Q" + deviceID + ".D) to[short] (" +  position.getX() + "," +  (-1) * (position.getY() - 1) + ");\n";
-                    output += "\\draw (Q" + deviceID + ".S) to[short] (" +  position.getX() + "," +  (-1) * (position.getY() + 1) + ");\n";
-                    output += "\\draw (Q" + deviceID + ".G) to[short] (" +  (position.getX() - 1) + "," +  (-1) * (position.getY()) + ");";
+                    output += "\\draw (Q" + deviceID + ".D) to[short] (" +  x + "," +  (-1) * (y - 1) + ");\n";
+                    output += "\\draw (Q" + deviceID + ".S) to[short] (" +  x + "," +  (-1) * (y + 1) + ");\n";
+                    output += "\\draw (Q" + deviceID + ".G) to[short] (" +  (x - 1) + "," +  (-1) * (y) + ");";
                     break;
                 case PIGBT:
                     //breakout the IGBT's terminals to fit with the current grid system:
-                    output += "\\draw (Q" + deviceID + ".S) to[short] (" +  position.getX() + "," +  (-1) * (position.getY() - 1) + ");\n";
-                    output += "\\draw (Q" + deviceID + ".D) to[short] (" +  position.getX() + "," +  (-1) * (position.getY() + 1) + ");\n";
-                    output += "\\draw (Q" + deviceID + ".G) to[short] (" +  (position.getX() - 1) + "," +  (-1) * (position.getY()) + ");";
+                    output += "\\draw (Q" + deviceID + ".S) to[short] (" +  x + "," +  (-1) * (y - 1) + ");\n";
+                    output += "\\draw (Q" + deviceID + ".D) to[short] (" +  x + "," +  (-1) * (y + 1) + ");\n";
+                    output += "\\draw (Q" + deviceID + ".G) to[short] (" +  (x - 1) + "," +  (-1) * (y) + ");";
                     break;
 
                 case TRANSFORMER:
-                    output += "\\draw (T" + deviceID + ".A1) to[short] (" +  (position.getX() - 1) + "," +  (-1) * (position.getY() - 1) + ");\n";
-                    output += "\\draw (T" + deviceID + ".A2) to[short] (" +  (position.getX() - 1) + "," +  (-1) * (position.getY() + 1) + ");\n";
+                    output += "\\draw (T" + deviceID + ".A1) to[short] (" +  (x - 1) + "," +  (-1) * (y - 1) + ");\n";
+                    output += "\\draw (T" + deviceID + ".A2) to[short] (" +  (x - 1) + "," +  (-1) * (y + 1) + ");\n";
 
-                    output += "\\draw (T" + deviceID + ".B1) to[short] (" +  (position.getX() + 1) + "," +  (-1) * (position.getY() - 1) + ");\n";
-                    output += "\\draw (T" + deviceID + ".B2) to[short] (" +  (position.getX() + 1) + "," +  (-1) * (position.getY() + 1) + ");";
+                    output += "\\draw (T" + deviceID + ".B1) to[short] (" +  (x + 1) + "," +  (-1) * (y - 1) + ");\n";
+                    output += "\\draw (T" + deviceID + ".B2) to[short] (" +  (x + 1) + "," +  (-1) * (y + 1) + ");";
 
                     break;
                 case TRANSFORMER_WITH_CORE:
-                    output += "\\draw (T" + deviceID + ".A1) to[short] (" +  (position.getX() - 1) + "," +  (-1) * (position.getY() - 1) + ");\n";
-                    output += "\\draw (T" + deviceID + ".A2) to[short] (" +  (position.getX() - 1) + "," +  (-1) * (position.getY() + 1) + ");\n";
+                    output += "\\draw (T" + deviceID + ".A1) to[short] (" +  (x - 1) + "," +  (-1) * (y - 1) + ");\n";
+                    output += "\\draw (T" + deviceID + ".A2) to[short] (" +  (x - 1) + "," +  (-1) * (y + 1) + ");\n";
 
-                    output += "\\draw (T" + deviceID + ".B1) to[short] (" +  (position.getX() + 1) + "," +  (-1) * (position.getY() - 1) + ");\n";
-                    output += "\\draw (T" + deviceID + ".B2) to[short] (" +  (position.getX() + 1) + "," +  (-1) * (position.getY() + 1) + ");";
+                    output += "\\draw (T" + deviceID + ".B1) to[short] (" +  (x + 1) + "," +  (-1) * (y - 1) + ");\n";
+                    output += "\\draw (T" + deviceID + ".B2) to[short] (" +  (x + 1) + "," +  (-1) * (y + 1) + ");";
 
                     break;
                 case OPAMP_3TERMINAL:
                     //breakout the opamp's terminals to fit with the current grid system:
-                    output += "\n\\draw (opamp" + deviceID + ".-) to[short] (" +  (position.getX() - 1.5) + "," +  (-1) * (position.getY() - 0.5) + ");\n"; // mod
-                    output += "\\draw (opamp" + deviceID + ".+) to[short] (" +  (position.getX() - 1.5) + "," +  (-1) * (position.getY() + 0.5) + ");"; // mod 
-//                    output += "\\draw (opamp" + deviceID + ".out) to[short] (" + (int) (position.getX() +1 ) + "," + (int) (-1) * (position.getY()) + ");";
+                    output += "\n\\draw (opamp" + deviceID + ".-) to[short] (" +  (x - 1.5) + "," +  (-1) * (y - 0.5) + ");\n"; // mod
+                    output += "\\draw (opamp" + deviceID + ".+) to[short] (" +  (x - 1.5) + "," +  (-1) * (y + 0.5) + ");"; // mod 
+//                    output += "\\draw (opamp" + deviceID + ".out) to[short] (" + (int) (x +1 ) + "," + (int) (-1) * (y) + ");";
                     break;
                 case OPAMP_5TERMINAL:
                     //breakout the opamp's terminals to fit with the current grid system:
-                    output += "\n\\draw (opamp" + deviceID + ".-) to[short] (" +  (position.getX() - 3) + "," +  (-1) * (position.getY() - 1) + ");\n";
-                    output += "\\draw (opamp" + deviceID + ".+) to[short] (" +  (position.getX() - 3) + "," +  (-1) * (position.getY() + 1) + ");";
-//                    output += "\\draw (opamp" + deviceID + ".out) to[short] (" + (int) (position.getX()) + "," + (int) (-1) * (position.getY()) + ");";
+                    output += "\n\\draw (opamp" + deviceID + ".-) to[short] (" +  (x - 3) + "," +  (-1) * (y - 1) + ");\n";
+                    output += "\\draw (opamp" + deviceID + ".+) to[short] (" +  (x - 3) + "," +  (-1) * (y + 1) + ");";
+//                    output += "\\draw (opamp" + deviceID + ".out) to[short] (" + (int) (x) + "," + (int) (-1) * (y) + ");";
                     break;
 
                 case BUFFER:
                     // connect a wire to the input terminal:
-                    output += "\n\\draw (buffer" + deviceID + ".in) to[short] (" +  (position.getX() - 1) + "," +  (-1) * (position.getY() - 0) + ");";
+                    output += "\n\\draw (buffer" + deviceID + ".in) to[short] (" +  (x - 1) + "," +  (-1) * (y - 0) + ");";
                     break;
                 case FD_OPAMP:
                     // connect a wire to the input terminals:
-                    output += "\n\\draw (opamp" + deviceID + ".-) to[short] (" +  (position.getX() - 1.5) + "," +  (-1) * (position.getY() - 0.5) + ");\n";
-                    output += "\\draw (opamp" + deviceID + ".+) to[short] (" +  (position.getX() - 1.5) + "," +  (-1) * (position.getY() + 0.5) + ");";
+                    output += "\n\\draw (opamp" + deviceID + ".-) to[short] (" +  (x - 1.5) + "," +  (-1) * (y - 0.5) + ");\n";
+                    output += "\\draw (opamp" + deviceID + ".+) to[short] (" +  (x - 1.5) + "," +  (-1) * (y + 0.5) + ");";
                     break;
                 case GM_AMP:
                     // connect a wire to the input terminals:
-                    output += "\n\\draw (opamp" + deviceID + ".-) to[short] (" +  (position.getX() - 1.5) + "," +  (-1) * (position.getY() - 0.5) + ");\n";
-                    output += "\\draw (opamp" + deviceID + ".+) to[short] (" +  (position.getX() - 1.5) + "," +  (-1) * (position.getY() + 0.5) + ");";
+                    output += "\n\\draw (opamp" + deviceID + ".-) to[short] (" +  (x - 1.5) + "," +  (-1) * (y - 0.5) + ");\n";
+                    output += "\\draw (opamp" + deviceID + ".+) to[short] (" +  (x - 1.5) + "," +  (-1) * (y + 0.5) + ");";
                     break;
 
                 case BLOCK:
@@ -805,24 +884,7 @@ public class Component {
      * @param yPos y position in circuitikz coordinates
      */
     public static void drawGNDNode(Graphics g2d, double gridSize, double xPos, double yPos) {
-        g2d.drawLine(
-              (int)  (gridSize * xPos - gridSize / 4),
-              (int)  (gridSize * yPos),
-              (int)  (gridSize * xPos + gridSize / 4),
-              (int)  (gridSize * yPos)
-        );
-        g2d.drawLine(
-              (int)  (gridSize * xPos - gridSize / 8),
-              (int)  (gridSize * yPos + gridSize / 8),
-              (int)  (gridSize * xPos + gridSize / 8),
-              (int)  (gridSize * yPos + gridSize / 8)
-        );
-        g2d.drawLine(
-              (int)  (gridSize * xPos - gridSize / 16),
-              (int)  (gridSize * yPos + 2 * gridSize / 8),
-              (int)  (gridSize * xPos + gridSize / 16),
-              (int)  (gridSize * yPos + 2 * gridSize / 8)
-        );
+        ComponentGlyph.get(GROUND_NODE).paint((Graphics2D) g2d, gridSize, xPos, yPos, false);
     }
 
     /**
@@ -835,25 +897,7 @@ public class Component {
      * @param yPos y position in circuitikz coordinates
      */
     public static void drawVSSNode(Graphics g2d, double gridSize, double xPos, double yPos) {
-        g2d.drawLine(
-              (int)  (gridSize * xPos),
-              (int)  (gridSize * yPos),
-              (int)  (gridSize * xPos),
-              (int)  (gridSize * yPos + gridSize / 3)
-        );
-        g2d.drawLine(
-              (int)  (gridSize * xPos),
-              (int)  (gridSize * yPos + gridSize / 3),
-              (int)  (gridSize * xPos - gridSize / 8),
-              (int)  (gridSize * yPos + gridSize / 5 - gridSize / 8)
-        );
-        g2d.drawLine(
-              (int)  (gridSize * xPos),
-              (int)  (gridSize * yPos + gridSize / 3),
-              (int)  (gridSize * xPos + gridSize / 8),
-              (int)  (gridSize * yPos + gridSize / 5 - gridSize / 8)
-        );
-
+        ComponentGlyph.get(VSS_NODE).paint((Graphics2D) g2d, gridSize, xPos, yPos, false);
     }
 
     /**
@@ -866,24 +910,7 @@ public class Component {
      * @param yPos y position in circuitikz coordinates
      */
     public static void drawVCCNode(Graphics g2d, double gridSize, double xPos, double yPos) {
-        g2d.drawLine(
-              (int)  (gridSize * xPos),
-              (int)  (gridSize * yPos),
-              (int)  (gridSize * xPos),
-              (int)  (gridSize * yPos - gridSize / 3)
-        );
-        g2d.drawLine(
-              (int)  (gridSize * xPos),
-              (int)  (gridSize * yPos - gridSize / 3),
-              (int)  (gridSize * xPos - gridSize / 8),
-              (int)  (gridSize * yPos - gridSize / 5 + gridSize / 8)
-        );
-        g2d.drawLine(
-              (int)  (gridSize * xPos),
-              (int)  (gridSize * yPos - gridSize / 3),
-              (int)  (gridSize * xPos + gridSize / 8),
-              (int)  (gridSize * yPos - gridSize / 5 + gridSize / 8)
-        );
+        ComponentGlyph.get(VCC_NODE).paint((Graphics2D) g2d, gridSize, xPos, yPos, false);
     }
 
     /**
@@ -898,17 +925,7 @@ public class Component {
      * be drawn as a selected component
      */
     public static void drawTransistor(Graphics g2d, double gridSize, double xPos, double yPos, boolean selected) {
-        g2d.drawLine((int) (gridSize * xPos), (int) (gridSize * yPos), (int) (gridSize * xPos), (int) (gridSize * yPos - gridSize));
-        g2d.drawLine((int) (gridSize * xPos), (int) (gridSize * yPos), (int) (gridSize * xPos), (int) (gridSize * yPos + gridSize));
-        g2d.drawLine((int) (gridSize * xPos), (int) (gridSize * yPos), (int) (gridSize * xPos - gridSize), (int) (gridSize * yPos));
-        g2d.setColor(Preferences.backgroundColor);
-        g2d.fillOval((int) (gridSize * xPos - gridSize / 3), (int) (gridSize * yPos - gridSize / 3), (int) (gridSize * 2 / 3), (int) (gridSize * 2 / 3));
-        if (selected) {
-            g2d.setColor(Preferences.selectedColor);
-        } else {
-            g2d.setColor(Preferences.componentColor);
-        }
-        g2d.drawOval( (int) (gridSize * xPos - gridSize / 3), (int) (gridSize * yPos - gridSize / 3), (int) (gridSize * 2 / 3), (int) (gridSize * 2 / 3));
+        ComponentGlyph.get(TRANSISTOR_NPN).paint((Graphics2D) g2d, gridSize, xPos, yPos, selected);
     }
 
     public static void drawTransformer(Graphics g2d, double gridSize, double xPos, double yPos, boolean selected) {
@@ -917,22 +934,7 @@ public class Component {
         } else {
             g2d.setColor(Preferences.componentColor);
         }
-
-        //top and bottom horizontal lines on left side
-        g2d.drawLine( (int) ((xPos - 1) * gridSize), (int) ((yPos + 1) * gridSize), (int) ((xPos - .25) * gridSize), (int) ((yPos + 1) * gridSize));
-        g2d.drawLine( (int) ((xPos - 1) * gridSize), (int) ((yPos - 1) * gridSize), (int) ((xPos - .25) * gridSize), (int) ((yPos - 1) * gridSize));
-
-        //vertical horizontal lines on left and right side
-        g2d.drawLine((int) ((xPos + .25) * gridSize), (int) ((yPos + 1) * gridSize), (int) ((xPos + .25) * gridSize), (int) ((yPos - 1) * gridSize));
-        g2d.drawLine((int) ((xPos - .25) * gridSize), (int) ((yPos + 1) * gridSize), (int) ((xPos - .25) * gridSize), (int) ((yPos - 1) * gridSize));
-
-        //top and bottom horizontal lines on right side
-        g2d.drawLine( (int) ((xPos + 1) * gridSize), (int) ((yPos + 1) * gridSize), (int) ((xPos + .25) * gridSize), (int) ((yPos + 1) * gridSize));
-        g2d.drawLine( (int) ((xPos + 1) * gridSize), (int) ((yPos - 1) * gridSize), (int) ((xPos + .25) * gridSize), (int) ((yPos - 1) * gridSize));
-
-        //draw some impedence-like symbols to differentiate the transformer a bit
-        g2d.fillRect((int) ((xPos - .35) * gridSize), (int) ((yPos - .5) * gridSize), (int) ((.2 * gridSize)), (int) (gridSize));
-        g2d.fillRect((int) ((xPos + .15) * gridSize), (int) ((yPos - .5) * gridSize), (int) ((.2 * gridSize)), (int) (gridSize));
+        ComponentGlyph.get(TRANSFORMER).paint((Graphics2D) g2d, gridSize, xPos, yPos, selected);
     }
 
     /**
@@ -950,40 +952,7 @@ public class Component {
      * constants defined at the top of Component class)
      */
     public static void drawOpamp(Graphics g2d, double gridSize, double xPos, double yPos, boolean selected, int component) {
-        Polygon opampBody = new Polygon();
-        opampBody.addPoint( (int) (gridSize * (xPos + 0.8)), (int) (gridSize * (yPos - 0))); // mod, adds 0.5 points
-        opampBody.addPoint((int) (gridSize * (xPos - 1)), (int) (gridSize * (yPos - 1))); // mod
-        opampBody.addPoint((int) (gridSize * (xPos - 1)), (int) (gridSize * (yPos + 1))); // mod
-
-        g2d.drawLine( (int) (gridSize * (xPos + 0.8)), (int) (gridSize * (yPos - 0)),  (int) (gridSize * (xPos + 1.2)), (int) (gridSize * (yPos - 0))); // output line
-
-
-        g2d.setColor(Preferences.backgroundColor);
-        g2d.fillPolygon(opampBody);
-        if (selected) {
-            g2d.setColor(Preferences.selectedColor);
-        } else {
-            g2d.setColor(Preferences.componentColor);
-        }
-        g2d.drawPolygon(opampBody);
-
-        //add terminals
-        g2d.drawLine((int) (gridSize * (xPos - 1.5)), (int) (gridSize * (yPos - 0.5)), (int) (gridSize * (xPos - 1)), (int) (gridSize * (yPos - 0.5))); // mod
-        g2d.drawLine((int) (gridSize * (xPos - 1.5)), (int) (gridSize * (yPos + 0.5)), (int) (gridSize * (xPos - 1)), (int) (gridSize * (yPos + 0.5))); // mod
-
-        //finally add the inverting and non-inverting input indicators  
-        //inverting indicator
-        g2d.drawLine((int) (gridSize * (xPos - .4)), (int) (gridSize * (yPos - 0.5)), (int) (gridSize * (xPos - .8)), (int) (gridSize * (yPos - 0.5))); // mod
-        //non-inverting indicator
-        g2d.drawLine((int) (gridSize * (xPos - .6)), (int) (gridSize * (yPos + 0.7)), (int) (gridSize * (xPos - .6)), (int) (gridSize * (yPos + 0.3))); // mod
-        g2d.drawLine((int) (gridSize * (xPos - .4)), (int) (gridSize * (yPos + 0.5)), (int) (gridSize * (xPos - .8)), (int) (gridSize * (yPos + 0.5))); // mod
-
-        //have to draw the power supply inputs for 5 terminal opamps 
-        if (component == OPAMP_5TERMINAL) {
-            g2d.fillOval( (int) (gridSize * (xPos) - gridSize / 8), (int) (gridSize * (yPos - 1) - gridSize / 8), (int) (gridSize / 4), (int) (gridSize / 4));
-            g2d.fillOval( (int) (gridSize * (xPos) - gridSize / 8), (int) (gridSize * (yPos + 1) - gridSize / 8), (int) (gridSize / 4), (int) (gridSize / 4));
-        }
-
+        ComponentGlyph.get(component).paint((Graphics2D) g2d, gridSize, xPos, yPos, selected);
     }
 
 
@@ -999,26 +968,7 @@ public class Component {
      * be drawn as a selected component
      */
     public static void drawBuffer(Graphics g2d, double gridSize, double xPos, double yPos, boolean selected) {
-        Polygon bufferBody = new Polygon();
-        bufferBody.addPoint( (int) (gridSize * (xPos + 0.3)), (int) (gridSize * (yPos - 0))); // mod, adds 0.5 points
-        bufferBody.addPoint((int) (gridSize * (xPos - 0.5)), (int) (gridSize * (yPos - 0.5))); // mod
-        bufferBody.addPoint((int) (gridSize * (xPos - 0.5)), (int) (gridSize * (yPos + 0.5))); // mod
-
-        // output line
-        g2d.drawLine( (int) (gridSize * (xPos + 0.4)), (int) (gridSize * (yPos - 0)),  (int) (gridSize * (xPos + 0.6)), (int) (gridSize * (yPos - 0)));
-
-        g2d.setColor(Preferences.backgroundColor);
-        g2d.fillPolygon(bufferBody);
-        if (selected) {
-            g2d.setColor(Preferences.selectedColor);
-        } else {
-            g2d.setColor(Preferences.componentColor);
-        }
-        g2d.drawPolygon(bufferBody);
-
-        // input line
-        g2d.drawLine((int) (gridSize * (xPos - 1)), (int) (gridSize * (yPos - 0.0)), (int) (gridSize * (xPos - 0.5)), (int) (gridSize * (yPos - 0.0))); // mod
-
+        ComponentGlyph.get(BUFFER).paint((Graphics2D) g2d, gridSize, xPos, yPos, selected);
     }
 
 
@@ -1033,41 +983,7 @@ public class Component {
      * be drawn as a selected component
      */
     public static void drawFDOpAmp(Graphics g2d, double gridSize, double xPos, double yPos, boolean selected) {
-        Polygon opampBody = new Polygon();
-        opampBody.addPoint( (int) (gridSize * (xPos + 0.8)), (int) (gridSize * (yPos - 0))); // mod, adds 0.5 points
-        opampBody.addPoint((int) (gridSize * (xPos - 1)), (int) (gridSize * (yPos - 1))); // mod
-        opampBody.addPoint((int) (gridSize * (xPos - 1)), (int) (gridSize * (yPos + 1))); // mod
-
-        // output terminals
-        g2d.drawLine( (int) (gridSize * (xPos - 0.1)), (int) (gridSize * (yPos - 0.5)),  (int) (gridSize * (xPos + 0.75)), (int) (gridSize * (yPos - 0.5)));
-        g2d.drawLine( (int) (gridSize * (xPos - 0.1)), (int) (gridSize * (yPos + 0.5)),  (int) (gridSize * (xPos + 0.75)), (int) (gridSize * (yPos + 0.5)));
-
-        g2d.setColor(Preferences.backgroundColor);
-        g2d.fillPolygon(opampBody);
-        if (selected) {
-            g2d.setColor(Preferences.selectedColor);
-        } else {
-            g2d.setColor(Preferences.componentColor);
-        }
-        g2d.drawPolygon(opampBody);
-
-        //add input terminals
-        g2d.drawLine((int) (gridSize * (xPos - 1.5)), (int) (gridSize * (yPos - 0.5)), (int) (gridSize * (xPos - 1)), (int) (gridSize * (yPos - 0.5))); // mod
-        g2d.drawLine((int) (gridSize * (xPos - 1.5)), (int) (gridSize * (yPos + 0.5)), (int) (gridSize * (xPos - 1)), (int) (gridSize * (yPos + 0.5))); // mod
-
-        //finally add the inverting and non-inverting input indicators  
-        //inverting indicator (-)
-        g2d.drawLine((int) (gridSize * (xPos - .7)), (int) (gridSize * (yPos - 0.5)), (int) (gridSize * (xPos - .9)), (int) (gridSize * (yPos - 0.5))); // mod
-        //non-inverting indicator (+)
-        g2d.drawLine((int) (gridSize * (xPos - .8)), (int) (gridSize * (yPos + 0.6)), (int) (gridSize * (xPos - .8)), (int) (gridSize * (yPos + 0.4))); // mod
-        g2d.drawLine((int) (gridSize * (xPos - .7)), (int) (gridSize * (yPos + 0.5)), (int) (gridSize * (xPos - .9)), (int) (gridSize * (yPos + 0.5))); // mod
-        
-        // add the inverting and non-inverting output indicators  
-        //inverting indicator (-)
-        g2d.drawLine((int) (gridSize * (xPos - .4)), (int) (gridSize * (yPos + 0.4)), (int) (gridSize * (xPos - .2)), (int) (gridSize * (yPos + 0.4))); // mod
-        //non-inverting indicator (+)
-        g2d.drawLine((int) (gridSize * (xPos - .3)), (int) (gridSize * (yPos - 0.5)), (int) (gridSize * (xPos - .3)), (int) (gridSize * (yPos - 0.3))); // mod
-        g2d.drawLine((int) (gridSize * (xPos - .4)), (int) (gridSize * (yPos - 0.4)), (int) (gridSize * (xPos - .2)), (int) (gridSize * (yPos - 0.4))); // mod
+        ComponentGlyph.get(FD_OPAMP).paint((Graphics2D) g2d, gridSize, xPos, yPos, selected);
     }
 
     /**
@@ -1081,35 +997,7 @@ public class Component {
      * be drawn as a selected component
      */
     public static void drawGMAmp(Graphics g2d, double gridSize, double xPos, double yPos, boolean selected) {
-        Polygon gmampBody = new Polygon();
-        gmampBody.addPoint( (int) (gridSize * (xPos + 0.8)), (int) (gridSize * (yPos + 0.5))); // mod, adds 0.5 points
-        gmampBody.addPoint( (int) (gridSize * (xPos + 0.8)), (int) (gridSize * (yPos - 0.5))); // mod, adds 0.5 points
-        gmampBody.addPoint((int) (gridSize * (xPos - 1)), (int) (gridSize * (yPos - 1))); // mod
-        gmampBody.addPoint((int) (gridSize * (xPos - 1)), (int) (gridSize * (yPos + 1))); // mod
-
-        // output terminal
-        g2d.drawLine( (int) (gridSize * (xPos - 0.1)), (int) (gridSize * (yPos - 0.0)),  (int) (gridSize * (xPos + 1.25)), (int) (gridSize * (yPos - 0.0)));
-
-        g2d.setColor(Preferences.backgroundColor);
-        g2d.fillPolygon(gmampBody);
-        if (selected) {
-            g2d.setColor(Preferences.selectedColor);
-        } else {
-            g2d.setColor(Preferences.componentColor);
-        }
-        g2d.drawPolygon(gmampBody);
-
-        //add input terminals
-        g2d.drawLine((int) (gridSize * (xPos - 1.5)), (int) (gridSize * (yPos - 0.5)), (int) (gridSize * (xPos - 1)), (int) (gridSize * (yPos - 0.5))); // mod
-        g2d.drawLine((int) (gridSize * (xPos - 1.5)), (int) (gridSize * (yPos + 0.5)), (int) (gridSize * (xPos - 1)), (int) (gridSize * (yPos + 0.5))); // mod
-
-        //finally add the inverting and non-inverting input indicators  
-        //inverting indicator (-)
-        g2d.drawLine((int) (gridSize * (xPos - .7)), (int) (gridSize * (yPos - 0.5)), (int) (gridSize * (xPos - .9)), (int) (gridSize * (yPos - 0.5))); // mod
-        //non-inverting indicator (+)
-        g2d.drawLine((int) (gridSize * (xPos - .8)), (int) (gridSize * (yPos + 0.6)), (int) (gridSize * (xPos - .8)), (int) (gridSize * (yPos + 0.4))); // mod
-        g2d.drawLine((int) (gridSize * (xPos - .7)), (int) (gridSize * (yPos + 0.5)), (int) (gridSize * (xPos - .9)), (int) (gridSize * (yPos + 0.5))); // mod
-        
+        ComponentGlyph.get(GM_AMP).paint((Graphics2D) g2d, gridSize, xPos, yPos, selected);
     }
 
 
@@ -1124,22 +1012,7 @@ public class Component {
      * be drawn as a selected component
      */
     public static void drawBlock(Graphics g2d, double gridSize, double xPos, double yPos, boolean selected) {
-        Polygon blockBody = new Polygon();
-        blockBody.addPoint( (int) (gridSize * (xPos + 1)), (int) (gridSize * (yPos + 0.5))); // mod, adds 0.5 points
-        blockBody.addPoint( (int) (gridSize * (xPos + 1)), (int) (gridSize * (yPos - 0.5))); // mod, adds 0.5 points
-        blockBody.addPoint((int) (gridSize * (xPos - 1)), (int) (gridSize * (yPos - 0.5))); // mod
-        blockBody.addPoint((int) (gridSize * (xPos - 1)), (int) (gridSize * (yPos + 0.5))); // mod
-
-
-        g2d.setColor(Preferences.backgroundColor);
-        g2d.fillPolygon(blockBody);
-        if (selected) {
-            g2d.setColor(Preferences.selectedColor);
-        } else {
-            g2d.setColor(Preferences.componentColor);
-        }
-        g2d.drawPolygon(blockBody);
-
+        ComponentGlyph.get(BLOCK).paint((Graphics2D) g2d, gridSize, xPos, yPos, selected);
     }
 
 
@@ -1155,14 +1028,7 @@ public class Component {
      * be drawn as a selected component
      */
     public static void drawMixer(Graphics g2d, double gridSize, double xPos, double yPos, boolean selected) {
-            g2d.drawOval((int) (gridSize*(xPos - 0.5)), (int) (gridSize*(yPos - 0.5)), (int) gridSize, (int) gridSize);
-        g2d.setColor(Preferences.backgroundColor);
-        if (selected) {
-            g2d.setColor(Preferences.selectedColor);
-        } else {
-            g2d.setColor(Preferences.componentColor);
-        }
-
+        ComponentGlyph.get(MIXER).paint((Graphics2D) g2d, gridSize, xPos, yPos, selected);
     }
 
     /**
@@ -1176,23 +1042,7 @@ public class Component {
      * be drawn as a selected component
      */
     public static void drawNode(Graphics g2d, double gridSize, double xPos, double yPos, boolean selected) {
-        // g2d.drawOval((int) (gridSize*(xPos - 0.5 + 0.4)), (int) (gridSize*(yPos - 0.5 + 0.0)), (int) gridSize/2, (int) gridSize/2);
-
-        Polygon nodeBody = new Polygon();
-        nodeBody.addPoint( (int) (gridSize * (xPos + 0.2)), (int) (gridSize * (yPos - 0.0))); // mod, adds 0.5 points
-        nodeBody.addPoint( (int) (gridSize * (xPos + 0.2)), (int) (gridSize * (yPos + 0.4))); // mod, adds 0.5 points
-        nodeBody.addPoint((int) (gridSize * (xPos - 0.2)), (int) (gridSize * (yPos + 0.4))); // mod
-        nodeBody.addPoint((int) (gridSize * (xPos - 0.2)), (int) (gridSize * (yPos - 0.0))); // mod
-
-        g2d.setColor(Preferences.backgroundColor);
-        g2d.fillPolygon(nodeBody);
-        if (selected) {
-            g2d.setColor(Preferences.selectedColor);
-        } else {
-            g2d.setColor(Preferences.componentColor);
-        }
-        g2d.drawPolygon(nodeBody);
-
+        ComponentGlyph.get(NODE).paint((Graphics2D) g2d, gridSize, xPos, yPos, selected);
     }
 
 
@@ -0,0 +1,265 @@
+package circuitikztool;
+
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+
+/**
+ * ComponentGlyph is the drawing of a single non-path component type. Every
+ * glyph is built once, in circuitikz coordinates relative to the position of
+ * the component. The glyph is scaled to the current grid size once and kept
+ * until the grid size changes, every component is then drawn by moving the
+ * graphics object to its position. This replaces recalculating every point of
+ * every line for every component on every frame.
+ *
+ * A glyph is made of up to four parts which are drawn in this order:
+ * leads (lines drawn in the current color before the body), the body (filled
+ * with the background color and then outlined in the component or selected
+ * color), details (lines drawn on top of the body) and solids (filled in the
+ * component or selected color).
+ */
+public class ComponentGlyph {
+
+    private final Shape leads;
+    private final Shape body;
+    private final Shape details;
+    private final Shape solids;
+
+    //bounds of the whole glyph relative to the component position
+    private final Rectangle2D bounds;
+
+    //the parts scaled to the grid size they were last drawn at, replaced when a different grid size is drawn
+    private volatile Scaled scaled;
+
+    //glyphs indexed by component type, built once when the class is loaded
+    private static final ComponentGlyph[] GLYPHS = new ComponentGlyph[Component.SDCAC + 1];
+
+    static {
+        ComponentGlyph transistor = new ComponentGlyph(
+                lines(0, 0, 0, -1, 0, 0, 0, 1, 0, 0, -1, 0),
+                new Ellipse2D.Double(-1.0 / 3, -1.0 / 3, 2.0 / 3, 2.0 / 3),
+                null,
+                null);
+        GLYPHS[Component.TRANSISTOR_NPN] = transistor;
+        GLYPHS[Component.TRANSISTOR_PNP] = transistor;
+        GLYPHS[Component.NMOS] = transistor;
+        GLYPHS[Component.PMOS] = transistor;
+        GLYPHS[Component.NIGBT] = transistor;
+        GLYPHS[Component.PIGBT] = transistor;
+
+        GLYPHS[Component.GROUND_NODE] = new ComponentGlyph(null, null,
+                lines(-1.0 / 4, 0, 1.0 / 4, 0,
+                        -1.0 / 8, 1.0 / 8, 1.0 / 8, 1.0 / 8,
+                        -1.0 / 16, 2.0 / 8, 1.0 / 16, 2.0 / 8),
+                null);
+        GLYPHS[Component.VSS_NODE] = new ComponentGlyph(null, null,
+                lines(0, 0, 0, 1.0 / 3,
+                        0, 1.0 / 3, -1.0 / 8, 1.0 / 5 - 1.0 / 8,
+                        0, 1.0 / 3, 1.0 / 8, 1.0 / 5 - 1.0 / 8),
+                null);
+        GLYPHS[Component.VCC_NODE] = new ComponentGlyph(null, null,
+                lines(0, 0, 0, -1.0 / 3,
+                        0, -1.0 / 3, -1.0 / 8, -1.0 / 5 + 1.0 / 8,
+                        0, -1.0 / 3, 1.0 / 8, -1.0 / 5 + 1.0 / 8),
+                null);
+
+        ComponentGlyph transformer = new ComponentGlyph(null, null,
+                lines(-1, 1, -.25, 1, //top and bottom horizontal lines on left side
+                        -1, -1, -.25, -1,
+                        .25, 1, .25, -1, //vertical lines on left and right side
+                        -.25, 1, -.25, -1,
+                        1, 1, .25, 1, //top and bottom horizontal lines on right side
+                        1, -1, .25, -1),
+                //some impedance-like symbols to differentiate the transformer a bit
+                union(new Rectangle2D.Double(-.35, -.5, .2, 1), new Rectangle2D.Double(.15, -.5, .2, 1)));
+        GLYPHS[Component.TRANSFORMER] = transformer;
+        GLYPHS[Component.TRANSFORMER_WITH_CORE] = transformer;
+
+        Shape opampBody = polygon(0.8, 0, -1, -1, -1, 1);
+        Shape opampDetails = lines(-1.5, -0.5, -1, -0.5, //terminals
+                -1.5, 0.5, -1, 0.5,
+                -.4, -0.5, -.8, -0.5, //inverting indicator
+                -.6, 0.7, -.6, 0.3, //non-inverting indicator
+                -.4, 0.5, -.8, 0.5);
+        GLYPHS[Component.OPAMP_3TERMINAL] = new ComponentGlyph(lines(0.8, 0, 1.2, 0), opampBody, opampDetails, null);
+        //5 terminal opamps also show their power supply inputs
+        GLYPHS[Component.OPAMP_5TERMINAL] = new ComponentGlyph(lines(0.8, 0, 1.2, 0), opampBody, opampDetails,
+                union(new Ellipse2D.Double(-1.0 / 8, -1 - 1.0 / 8, 1.0 / 4, 1.0 / 4), new Ellipse2D.Double(-1.0 / 8, 1 - 1.0 / 8, 1.0 / 4, 1.0 / 4)));
+
+        GLYPHS[Component.BUFFER] = new ComponentGlyph(
+                lines(0.4, 0, 0.6, 0), //output line
+                polygon(0.3, 0, -0.5, -0.5, -0.5, 0.5),
+                lines(-1, 0, -0.5, 0), //input line
+                null);
+
+        Shape differentialInputs = lines(-1.5, -0.5, -1, -0.5, //input terminals
+                -1.5, 0.5, -1, 0.5,
+                -.7, -0.5, -.9, -0.5, //inverting indicator (-)
+                -.8, 0.6, -.8, 0.4, //non-inverting indicator (+)
+                -.7, 0.5, -.9, 0.5);
+        GLYPHS[Component.FD_OPAMP] = new ComponentGlyph(
+                lines(-0.1, -0.5, 0.75, -0.5, -0.1, 0.5, 0.75, 0.5), //output terminals
+                opampBody,
+                union(differentialInputs, lines(-.4, 0.4, -.2, 0.4, //inverting output indicator (-)
+                        -.3, -0.5, -.3, -0.3, //non-inverting output indicator (+)
+                        -.4, -0.4, -.2, -0.4)),
+                null);
+        GLYPHS[Component.GM_AMP] = new ComponentGlyph(
+                lines(-0.1, 0, 1.25, 0), //output terminal
+                polygon(0.8, 0.5, 0.8, -0.5, -1, -1, -1, 1),
+                differentialInputs,
+                null);
+
+        ComponentGlyph block = new ComponentGlyph(null, polygon(1, 0.5, 1, -0.5, -1, -0.5, -1, 0.5), null, null);
+        GLYPHS[Component.BLOCK] = block;
+        GLYPHS[Component.SACDC] = block;
+        GLYPHS[Component.SDCAC] = block;
+
+        GLYPHS[Component.MIXER] = new ComponentGlyph(null, null, new Ellipse2D.Double(-0.5, -0.5, 1, 1), null);
+        GLYPHS[Component.NODE] = new ComponentGlyph(null, polygon(0.2, 0, 0.2, 0.4, -0.2, 0.4, -0.2, 0), null, null);
+    }
+
+    private ComponentGlyph(Shape leads, Shape body, Shape details, Shape solids) {
+        this.leads = leads;
+        this.body = body;
+        this.details = details;
+        this.solids = solids;
+
+        Rectangle2D b = null;
+        for (Shape s : new Shape[]{leads, body, details, solids}) {
+            if (s != null) {
+                if (b == null) {
+                    b = s.getBounds2D();
+                } else {
+                    b.add(s.getBounds2D());
+                }
+            }
+        }
+        bounds = b;
+    }
+
+    /**
+     * returns the glyph of a non-path component type
+     *
+     * @param componentType component type, see the constants of Component
+     * @return glyph of the component type
+     * @throws IllegalArgumentException if the type has no glyph (path
+     * components and commands)
+     */
+    public static ComponentGlyph get(int componentType) {
+        if (componentType < 0 || componentType >= GLYPHS.length || GLYPHS[componentType] == null) {
+            throw new IllegalArgumentException("No glyph exists for component type " + componentType);
+        }
+        return GLYPHS[componentType];
+    }
+
+    /**
+     * returns the area covered by this glyph in circuitikz coordinates,
+     * relative to the position of the component
+     *
+     * @return bounds of the glyph, do not modify
+     */
+    public Rectangle2D getBounds() {
+        return bounds;
+    }
+
+    /**
+     * draws the glyph at an x and y position (in circuitikz coordinates).
+     * leads and details are drawn in the color currently set on the graphics
+     * object, the body is filled with the background color and outlined in
+     * the component or selected color.
+     *
+     * @param g2d graphics object to be drawn onto
+     * @param gridSize current size of the grid
+     * @param xPos x position in circuitikz coordinates
+     * @param yPos y position in circuitikz coordinates
+     * @param selected whether or not the component should be drawn as selected
+     */
+    public void paint(Graphics2D g2d, double gridSize, double xPos, double yPos, boolean selected) {
+        Scaled s = scaled;
+        if (s == null || s.gridSize != gridSize) {
+            //tiles are drawn on several threads, if two of them scale the glyph at the same time one of the results is kept
+            s = new Scaled(gridSize);
+            scaled = s;
+        }
+
+        //the lines keep their width in pixels, so only the position is applied to the graphics object
+        double dx = gridSize * xPos, dy = gridSize * yPos;
+        g2d.translate(dx, dy);
+        if (s.leads != null) {
+            g2d.draw(s.leads);
+        }
+        if (s.body != null) {
+            g2d.setColor(Preferences.backgroundColor);
+            g2d.fill(s.body);
+            g2d.setColor(selected ? Preferences.selectedColor : Preferences.componentColor);
+            g2d.draw(s.body);
+        }
+        if (s.details != null) {
+            g2d.draw(s.details);
+        }
+        if (s.solids != null) {
+            g2d.fill(s.solids);
+        }
+        g2d.translate(-dx, -dy);
+    }
+
+    /**
+     * the parts of the glyph scaled to one grid size, relative to the
+     * position of the component in pixels
+     */
+    private class Scaled {
+
+        final double gridSize;
+        final Shape leads, body, details, solids;
+
+        Scaled(double gridSize) {
+            this.gridSize = gridSize;
+            AffineTransform toScreen = AffineTransform.getScaleInstance(gridSize, gridSize);
+            leads = ComponentGlyph.this.leads == null ? null : toScreen.createTransformedShape(ComponentGlyph.this.leads);
+            body = ComponentGlyph.this.body == null ? null : toScreen.createTransformedShape(ComponentGlyph.this.body);
+            details = ComponentGlyph.this.details == null ? null : toScreen.createTransformedShape(ComponentGlyph.this.details);
+            solids = ComponentGlyph.this.solids == null ? null : toScreen.createTransformedShape(ComponentGlyph.this.solids);
+        }
+    }
+
+    /**
+     * builds a shape made of separate line segments
+     *
+     * @param c x1, y1, x2, y2 of every segment
+     * @return shape containing all segments
+     */
+    private static Path2D lines(double... c) {
+        Path2D.Double p = new Path2D.Double();
+        for (int a = 0; a + 3 < c.length; a += 4) {
+            p.moveTo(c[a], c[a + 1]);
+            p.lineTo(c[a + 2], c[a + 3]);
+        }
+        return p;
+    }
+
+    /**
+     * builds a closed polygon
+     *
+     * @param c x, y of every corner
+     * @return closed polygon
+     */
+    private static Path2D polygon(double... c) {
+        Path2D.Double p = new Path2D.Double();
+        p.moveTo(c[0], c[1]);
+        for (int a = 2; a + 1 < c.length; a += 2) {
+            p.lineTo(c[a], c[a + 1]);
+        }
+        p.closePath();
+        return p;
+    }
+
+    private static Path2D union(Shape a, Shape b) {
+        Path2D.Double p = new Path2D.Double(a);
+        p.append(b, false);
+        return p;
+    }
+}
@@ -0,0 +1,129 @@
+package circuitikztool;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * ComponentIds keeps the bookkeeping a ComponentStore needs on top of its
+ * components: the ID of every slot, which slots were removed and the slot of
+ * every ID.
+ *
+ * IDs are handed out in increasing order and never reused, so the slots are
+ * sorted by ID and the slot of an ID is a single array lookup in a table
+ * starting at the lowest ID still around. Removing a component only marks its
+ * slot, compact() drops the marked slots and returns where every slot ended
+ * up so whoever refers to slots can follow.
+ */
+class ComponentIds {
+
+    private long[] ids;
+    private int slots = 0;
+
+    private final BitSet removed;
+    private int removedCount = 0;
+
+    //slot of every ID from firstId on, -1 for IDs that were removed
+    private int[] slotOfId;
+    private long firstId = 1, nextId = 1;
+
+    ComponentIds(int capacity) {
+        ids = new long[Math.max(16, capacity)];
+        slotOfId = new int[ids.length];
+        removed = new BitSet();
+    }
+
+    int slotCount() {
+        return slots;
+    }
+
+    int count() {
+        return slots - removedCount;
+    }
+
+    int removedCount() {
+        return removedCount;
+    }
+
+    boolean isRemoved(int slot) {
+        return removed.get(slot);
+    }
+
+    long getId(int slot) {
+        return ids[slot];
+    }
+
+    int slotOf(long id) {
+        if (id < firstId || id >= nextId) {
+            return -1;
+        }
+        return slotOfId[(int) (id - firstId)];
+    }
+
+    /**
+     * adds a slot at the end
+     *
+     * @return ID of the new slot
+     */
+    long add() {
+        if (slots == ids.length) {
+            ids = Arrays.copyOf(ids, slots * 2);
+        }
+        long id = nextId++;
+        int offset = (int) (id - firstId);
+        if (offset == slotOfId.length) {
+            slotOfId = Arrays.copyOf(slotOfId, offset * 2);
+        }
+        ids[slots] = id;
+        slotOfId[offset] = slots;
+        slots++;
+        return id;
+    }
+
+    void remove(int slot) {
+        if (!removed.get(slot)) {
+            removed.set(slot);
+            removedCount++;
+            slotOfId[(int) (ids[slot] - firstId)] = -1;
+        }
+    }
+
+    /**
+     * drops the removed slots, the remaining ones keep their order
+     *
+     * @return new slot of every old slot, -1 for removed ones
+     */
+    int[] compact() {
+        int[] newSlots = new int[slots];
+        int kept = 0;
+        for (int a = 0; a < slots; a++) {
+            if (removed.get(a)) {
+                newSlots[a] = -1;
+            } else {
+                ids[kept] = ids[a];
+                newSlots[a] = kept++;
+            }
+        }
+        slots = kept;
+        removed.clear();
+        removedCount = 0;
+
+        //the table only has to start at the lowest ID left
+        firstId = kept > 0 ? ids[0] : nextId;
+        slotOfId = new int[Math.max(16, (int) (nextId - firstId))];
+        Arrays.fill(slotOfId, -1);
+        for (int a = 0; a < kept; a++) {
+            slotOfId[(int) (ids[a] - firstId)] = a;
+        }
+        return newSlots;
+    }
+
+    /**
+     * removes every slot, IDs handed out before are not used again
+     */
+    void clear() {
+        slots = 0;
+        removed.clear();
+        removedCount = 0;
+        firstId = nextId;
+    }
+}
@@ -0,0 +1,133 @@
+package circuitikztool;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.BitSet;
+
+/**
+ * ComponentList keeps every component as its own object, which is what
+ * CircuitMaker has always done. get() returns the stored object itself. Used
+ * for schematics of normal size, see PackedComponentStore for very large ones.
+ *
+ * Components added or written back share their text with the other
+ * components of the list (see Component.shareText()), so a schematic of a
+ * thousand wires keeps "to[short]" once and not a thousand times.
+ */
+public class ComponentList implements ComponentStore {
+
+    private final ArrayList<Component> components;
+    private final ComponentIds ids;
+    private final StringPool strings;
+
+    //slots changed since the last snapshot, and that snapshot
+    private final BitSet changed = new BitSet();
+    private ComponentSnapshot snapshot;
+
+    public ComponentList() {
+        components = new ArrayList<>();
+        ids = new ComponentIds(16);
+        strings = new StringPool();
+    }
+
+    @Override
+    public int slotCount() {
+        return components.size();
+    }
+
+    @Override
+    public int count() {
+        return ids.count();
+    }
+
+    @Override
+    public int removedCount() {
+        return ids.removedCount();
+    }
+
+    @Override
+    public boolean isRemoved(int slot) {
+        return ids.isRemoved(slot);
+    }
+
+    @Override
+    public long getId(int slot) {
+        return ids.getId(slot);
+    }
+
+    @Override
+    public int slotOf(long id) {
+        return ids.slotOf(id);
+    }
+
+    @Override
+    public Component get(int slot) {
+        return components.get(slot);
+    }
+
+    @Override
+    public Rectangle2D getBounds(int slot) {
+        return components.get(slot).getBounds();
+    }
+
+    @Override
+    public long add(Component c) {
+        c.shareText(strings);
+        components.add(c);
+        changed.set(components.size() - 1);
+        return ids.add();
+    }
+
+    @Override
+    public void set(int slot, Component c) {
+        c.shareText(strings);
+        components.set(slot, c);
+        changed.set(slot);
+    }
+
+    @Override
+    public void remove(int slot) {
+        //the object isn't needed anymore, only the slot stays until the next compact()
+        components.set(slot, null);
+        ids.remove(slot);
+        changed.set(slot);
+    }
+
+    @Override
+    public int[] compact() {
+        int[] newSlots = ids.compact();
+        int kept = 0;
+        for (int a = 0; a < newSlots.length; a++) {
+            if (newSlots[a] >= 0) {
+                components.set(kept++, components.get(a));
+            }
+        }
+        components.subList(kept, components.size()).clear();
+
+        //every slot after the first removed one moved, the next snapshot starts over
+        changed.clear();
+        snapshot = null;
+        return newSlots;
+    }
+
+    @Override
+    public void clear() {
+        components.clear();
+        ids.clear();
+        strings.clear();
+        changed.clear();
+        snapshot = null;
+    }
+
+    /**
+     * takes a snapshot of the values of the components, changing a component
+     * object of the list later doesn't affect it
+     *
+     * @return snapshot of the list
+     */
+    @Override
+    public ComponentSnapshot snapshot() {
+        snapshot = ComponentSnapshot.update(snapshot, this, changed);
+        changed.clear();
+        return snapshot;
+    }
+}
@@ -0,0 +1,430 @@
+package circuitikztool;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * ComponentSnapshot is a version of the placed components that never
+ * changes, it only has the reading methods of ComponentView. It can be read
+ * on any thread without locking while the event
+ * dispatch thread goes on editing the store it was taken from (see
+ * ComponentStore.snapshot()).
+ *
+ * The slots are split into chunks of CHUNK_SIZE. A new snapshot is built from
+ * the previous one and the slots that changed since: chunks without changes
+ * are shared with the previous snapshot and only the changed ones are copied.
+ * Taking a snapshot after every edit costs about a chunk per changed
+ * component plus the short array of chunks, no matter how large the
+ * schematic is. Like PackedComponentStore the chunks keep the components in
+ * columns, get() builds a new component every time it is called.
+ *
+ * A snapshot is filled in completely before anyone else gets to see it, it
+ * has to be handed to other threads through something that guarantees
+ * visibility (an AtomicReference, a volatile field or an executor).
+ */
+public class ComponentSnapshot implements ComponentView {
+
+    //slots per chunk, a power of two so the chunk of a slot is a shift away
+    final static int CHUNK_BITS = 10;
+    final static int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    private final Chunk[] chunks;
+    private final int slotCount, count, removedCount;
+
+    private ComponentSnapshot(Chunk[] chunks, int slotCount, int count, int removedCount) {
+        this.chunks = chunks;
+        this.slotCount = slotCount;
+        this.count = count;
+        this.removedCount = removedCount;
+    }
+
+    /**
+     * builds the snapshot of a store
+     *
+     * @param previous last snapshot of the same store, null if there is none
+     * or the slots of the store moved since it was taken (see compact())
+     * @param store store to take the snapshot of
+     * @param changed slots that were added, written or removed since previous
+     * was taken
+     * @return snapshot of the store, shares every chunk without changes with
+     * previous
+     */
+    static ComponentSnapshot update(ComponentSnapshot previous, ComponentView store, BitSet changed) {
+        int slots = store.slotCount();
+        if (previous != null && previous.slotCount == slots && changed.isEmpty()) {
+            return previous;
+        }
+        Chunk[] chunks = new Chunk[(slots + CHUNK_SIZE - 1) >> CHUNK_BITS];
+
+        //first changed slot not before the current chunk, only moves forward so the bits are scanned once
+        int nextChange = changed.nextSetBit(0);
+        for (int a = 0; a < chunks.length; a++) {
+            int first = a << CHUNK_BITS;
+            int length = Math.min(CHUNK_SIZE, slots - first);
+            Chunk old = previous != null && a < previous.chunks.length ? previous.chunks[a] : null;
+            if (nextChange >= 0 && nextChange < first) {
+                nextChange = changed.nextSetBit(first);
+            }
+            boolean unchanged = nextChange < 0 || nextChange >= first + length;
+            if (old != null && old.ids.length == length && unchanged) {
+                chunks[a] = old;
+                continue;
+            }
+
+            //only the changed slots and the ones added at the end are read from the store
+            Chunk chunk = old == null ? new Chunk(length) : new Chunk(old, length);
+            int kept = old == null ? 0 : old.ids.length;
+            for (int b = 0; b < length; b++) {
+                if (b >= kept || changed.get(first + b)) {
+                    chunk.write(b, store, first + b);
+                }
+            }
+            chunks[a] = chunk;
+        }
+        return new ComponentSnapshot(chunks, slots, store.count(), store.removedCount());
+    }
+
+    @Override
+    public int slotCount() {
+        return slotCount;
+    }
+
+    @Override
+    public int count() {
+        return count;
+    }
+
+    @Override
+    public int removedCount() {
+        return removedCount;
+    }
+
+    @Override
+    public boolean isRemoved(int slot) {
+        return chunkOf(slot).removed[slot & (CHUNK_SIZE - 1)];
+    }
+
+    @Override
+    public long getId(int slot) {
+        return chunkOf(slot).ids[slot & (CHUNK_SIZE - 1)];
+    }
+
+    @Override
+    public int slotOf(long id) {
+        //ids increase with the slot, see ComponentIds
+        int low = 0, high = slotCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long middleId = getId(middle);
+            if (middleId < id) {
+                low = middle + 1;
+            } else if (middleId > id) {
+                high = middle - 1;
+            } else {
+                return isRemoved(middle) ? -1 : middle;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public Component get(int slot) {
+        Chunk chunk = chunkOf(slot);
+        int a = slot & (CHUNK_SIZE - 1);
+        return new Component(chunk.types[a], chunk.starts[a], chunk.ends[a], chunk.labels[a], chunk.latex[a], chunk.deviceIDs[a]);
+    }
+
+    @Override
+    public Rectangle2D getBounds(int slot) {
+        Chunk chunk = chunkOf(slot);
+        int a = slot & (CHUNK_SIZE - 1);
+        return Component.getBounds(chunk.types[a], chunk.starts[a], chunk.ends[a]);
+    }
+
+    /**
+     * finds the components that may have to be drawn in an area: every
+     * component whose symbol or label anchor touches it. Labels reach further
+     * than their anchor, callers that draw labels grow the area by
+     * Component.getLabelReach() for getLongestLabel() characters. A few
+     * components that don't touch the area may be returned as well, the exact
+     * test is left to the caller.
+     *
+     * Every chunk keeps a grid of SpatialIndex.CELL_SIZE cells for this, so
+     * only the components near the area are looked at. The grid of a chunk is
+     * built the first time it is searched and shared with every later
+     * snapshot that shares the chunk.
+     *
+     * @param area area in circuitikz coordinates
+     * @return slots of the components in ascending order (the order they are
+     * drawn in)
+     */
+    public int[] find(Rectangle2D area) {
+        int x0 = SpatialIndex.cell(area.getMinX()), x1 = SpatialIndex.cell(area.getMaxX());
+        int y0 = SpatialIndex.cell(area.getMinY()), y1 = SpatialIndex.cell(area.getMaxY());
+        long areaCells = (long) (x1 - x0 + 1) * (y1 - y0 + 1);
+
+        int[] found = new int[16];
+        int foundCount = 0;
+        int[] local = new int[CHUNK_SIZE];
+        boolean[] seen = new boolean[CHUNK_SIZE];
+        for (int c = 0; c < chunks.length; c++) {
+            CellGrid grid = chunks[c].grid();
+            if (grid.items.length + grid.large.length == 0 || area.getMaxX() < grid.minX || grid.maxX < area.getMinX()
+                    || area.getMaxY() < grid.minY || grid.maxY < area.getMinY()) {
+                continue;
+            }
+            int count = 0;
+            for (int a = 0; a < grid.large.length; a++) {
+                if (grid.largeBounds[4 * a] <= area.getMaxX() && area.getMinX() <= grid.largeBounds[4 * a + 2]
+                        && grid.largeBounds[4 * a + 1] <= area.getMaxY() && area.getMinY() <= grid.largeBounds[4 * a + 3]) {
+                    seen[grid.large[a]] = true;
+                    local[count++] = grid.large[a];
+                }
+            }
+            //wide areas (zoomed out far) go through the cells of the chunk instead of the cells of the area
+            if (areaCells <= grid.cells.length) {
+                for (int x = x0; x <= x1; x++) {
+                    for (int y = y0; y <= y1; y++) {
+                        int cell = Arrays.binarySearch(grid.cells, SpatialIndex.key(x, y));
+                        if (cell >= 0) {
+                            count = collect(grid, cell, local, count, seen);
+                        }
+                    }
+                }
+            } else {
+                for (int cell = 0; cell < grid.cells.length; cell++) {
+                    int x = (int) (grid.cells[cell] >> 32), y = (int) grid.cells[cell];
+                    if (x >= x0 && x <= x1 && y >= y0 && y <= y1) {
+                        count = collect(grid, cell, local, count, seen);
+                    }
+                }
+            }
+
+            Arrays.sort(local, 0, count);
+            if (foundCount + count > found.length) {
+                found = Arrays.copyOf(found, Math.max(found.length * 2, foundCount + count));
+            }
+            for (int a = 0; a < count; a++) {
+                seen[local[a]] = false;
+                found[foundCount++] = (c << CHUNK_BITS) + local[a];
+            }
+        }
+        return Arrays.copyOf(found, foundCount);
+    }
+
+    /**
+     * adds the components of a cell that weren't found yet
+     */
+    private static int collect(CellGrid grid, int cell, int[] local, int count, boolean[] seen) {
+        for (int a = grid.firstItem[cell]; a < grid.firstItem[cell + 1]; a++) {
+            int item = grid.items[a];
+            if (!seen[item]) {
+                seen[item] = true;
+                local[count++] = item;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return number of characters of the longest label in the snapshot
+     */
+    public int getLongestLabel() {
+        int longest = 0;
+        for (Chunk chunk : chunks) {
+            longest = Math.max(longest, chunk.grid().longestLabel);
+        }
+        return longest;
+    }
+
+    private Chunk chunkOf(int slot) {
+        if (slot < 0 || slot >= slotCount) {
+            throw new IndexOutOfBoundsException("Slot " + slot + " of " + slotCount);
+        }
+        return chunks[slot >> CHUNK_BITS];
+    }
+
+    /**
+     * columns of up to CHUNK_SIZE slots, only written while the snapshot
+     * holding it is being built
+     */
+    private static class Chunk {
+
+        final long[] ids;
+        final boolean[] removed;
+        final byte[] types;
+
+        //packed start and end of path components, non-path components keep their position in starts (see HalfGrid)
+        final long[] starts, ends;
+        final String[] labels, latex;
+        final int[] deviceIDs;
+
+        //built when the chunk is first searched, see find()
+        private volatile CellGrid grid;
+
+        Chunk(int length) {
+            ids = new long[length];
+            removed = new boolean[length];
+            types = new byte[length];
+            starts = new long[length];
+            ends = new long[length];
+            labels = new String[length];
+            latex = new String[length];
+            deviceIDs = new int[length];
+        }
+
+        Chunk(Chunk source, int length) {
+            ids = Arrays.copyOf(source.ids, length);
+            removed = Arrays.copyOf(source.removed, length);
+            types = Arrays.copyOf(source.types, length);
+            starts = Arrays.copyOf(source.starts, length);
+            ends = Arrays.copyOf(source.ends, length);
+            labels = Arrays.copyOf(source.labels, length);
+            latex = Arrays.copyOf(source.latex, length);
+            deviceIDs = Arrays.copyOf(source.deviceIDs, length);
+        }
+
+        /**
+         * copies a slot of a store into the chunk
+         */
+        void write(int a, ComponentView store, int slot) {
+            ids[a] = store.getId(slot);
+            removed[a] = store.isRemoved(slot);
+            if (removed[a]) {
+                //the text of removed components isn't needed anymore
+                labels[a] = null;
+                latex[a] = null;
+                return;
+            }
+            Component c = store.get(slot);
+            types[a] = (byte) c.componentType;
+            if (c.isPathComponent()) {
+                starts[a] = c.start;
+                ends[a] = c.end;
+            } else {
+                starts[a] = c.position;
+                ends[a] = 0;
+            }
+            labels[a] = c.getComponentLabel();
+            latex[a] = c.getLatexString();
+            deviceIDs[a] = c.getDeviceID();
+        }
+
+        /**
+         * returns the grid of the chunk, building it if it doesn't exist yet.
+         * Chunks never change once their snapshot is built, two threads
+         * building the grid at the same time build the same one.
+         */
+        CellGrid grid() {
+            CellGrid g = grid;
+            if (g == null) {
+                g = new CellGrid(this);
+                grid = g;
+            }
+            return g;
+        }
+    }
+
+    /**
+     * the components of a chunk listed in every SpatialIndex cell their symbol
+     * or label anchor touches, stored as sorted arrays
+     */
+    private static class CellGrid {
+
+        //components covering more cells than this are in large instead, so a long wire doesn't fill hundreds of cells
+        final static int MAX_CELLS = 64;
+
+        //packed position of every non-empty cell in ascending order (see SpatialIndex.key()), items of cell a are items[firstItem[a]] to items[firstItem[a + 1] - 1]
+        final long[] cells;
+        final int[] firstItem;
+        final int[] items;
+
+        //components that cover too many cells and their bounds (min x, min y, max x, max y), searches test them one by one
+        final int[] large;
+        final double[] largeBounds;
+
+        //area covered by all components of the chunk in circuitikz coordinates
+        final double minX, minY, maxX, maxY;
+
+        //number of characters of the longest label of the chunk
+        final int longestLabel;
+
+        CellGrid(Chunk chunk) {
+            int length = chunk.ids.length;
+            long[] keys = new long[length];
+            int[] keyItems = new int[length];
+            int[] largeItems = new int[length];
+            double[] largeItemBounds = new double[4 * length];
+            int pairs = 0, largeCount = 0, longest = 0;
+            double chunkMinX = Double.POSITIVE_INFINITY, chunkMinY = Double.POSITIVE_INFINITY;
+            double chunkMaxX = Double.NEGATIVE_INFINITY, chunkMaxY = Double.NEGATIVE_INFINITY;
+            for (int a = 0; a < length; a++) {
+                if (chunk.removed[a]) {
+                    continue;
+                }
+                Rectangle2D b = Component.getBounds(chunk.types[a], chunk.starts[a], chunk.ends[a]);
+                b.add(Component.getLabelAnchor(chunk.types[a], chunk.starts[a], chunk.ends[a]));
+                chunkMinX = Math.min(chunkMinX, b.getMinX());
+                chunkMinY = Math.min(chunkMinY, b.getMinY());
+                chunkMaxX = Math.max(chunkMaxX, b.getMaxX());
+                chunkMaxY = Math.max(chunkMaxY, b.getMaxY());
+                longest = Math.max(longest, chunk.labels[a].length());
+
+                int x0 = SpatialIndex.cell(b.getMinX()), x1 = SpatialIndex.cell(b.getMaxX());
+                int y0 = SpatialIndex.cell(b.getMinY()), y1 = SpatialIndex.cell(b.getMaxY());
+                if ((long) (x1 - x0 + 1) * (y1 - y0 + 1) > MAX_CELLS) {
+                    largeItemBounds[4 * largeCount] = b.getMinX();
+                    largeItemBounds[4 * largeCount + 1] = b.getMinY();
+                    largeItemBounds[4 * largeCount + 2] = b.getMaxX();
+                    largeItemBounds[4 * largeCount + 3] = b.getMaxY();
+                    largeItems[largeCount++] = a;
+                    continue;
+                }
+                for (int x = x0; x <= x1; x++) {
+                    for (int y = y0; y <= y1; y++) {
+                        if (pairs == keys.length) {
+                            keys = Arrays.copyOf(keys, pairs * 2);
+                            keyItems = Arrays.copyOf(keyItems, pairs * 2);
+                        }
+                        keys[pairs] = SpatialIndex.key(x, y);
+                        keyItems[pairs++] = a;
+                    }
+                }
+            }
+
+            //distinct cells in order, then every pair as (cell number, item) sorted in one go
+            long[] sortedKeys = Arrays.copyOf(keys, pairs);
+            Arrays.sort(sortedKeys);
+            int cellCount = 0;
+            for (int a = 0; a < pairs; a++) {
+                if (a == 0 || sortedKeys[a] != sortedKeys[a - 1]) {
+                    sortedKeys[cellCount++] = sortedKeys[a];
+                }
+            }
+            cells = Arrays.copyOf(sortedKeys, cellCount);
+            long[] sortedPairs = new long[pairs];
+            for (int a = 0; a < pairs; a++) {
+                sortedPairs[a] = ((long) Arrays.binarySearch(cells, keys[a]) << CHUNK_BITS) | keyItems[a];
+            }
+            Arrays.sort(sortedPairs);
+            firstItem = new int[cellCount + 1];
+            items = new int[pairs];
+            for (int a = 0; a < pairs; a++) {
+                items[a] = (int) (sortedPairs[a] & (CHUNK_SIZE - 1));
+                firstItem[(int) (sortedPairs[a] >> CHUNK_BITS) + 1]++;
+            }
+            for (int a = 0; a < cellCount; a++) {
+                firstItem[a + 1] += firstItem[a];
+            }
+
+            large = Arrays.copyOf(largeItems, largeCount);
+            largeBounds = Arrays.copyOf(largeItemBounds, 4 * largeCount);
+            minX = chunkMinX;
+            minY = chunkMinY;
+            maxX = chunkMaxX;
+            maxY = chunkMaxY;
+            longestLabel = longest;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package circuitikztool;
+
+/**
+ * ComponentStore holds the placed components of a schematic in the order they
+ * were placed. CircuitMaker only talks to its components through this
+ * interface, so the way they are kept in memory can be chosen to suit the
+ * size of the schematic (see ComponentList and PackedComponentStore).
+ *
+ * Every component gets an ID when it is added. IDs stay the same for as long
+ * as the component is in the store and are never used again, anything that
+ * has to remember a component (selection, the component list of the UI) keeps
+ * its ID. Components live in slots, removing a component only marks its slot
+ * as removed and the slots of every other component stay the same until
+ * compact() is called. Loops over the slots have to skip removed ones.
+ *
+ * Components handed out by get() are not necessarily the objects the store
+ * keeps, a store may build a new one on every call. Changes to a component
+ * therefore only take effect once it is written back with set().
+ *
+ * The reading methods are declared in ComponentView, this interface adds the
+ * ones that change the store.
+ */
+public interface ComponentStore extends ComponentView {
+
+    /**
+     * adds a component in a new slot at the end of the store
+     *
+     * @param c component to add
+     * @return ID of the component
+     */
+    long add(Component c);
+
+    /**
+     * replaces the component in a slot, also used to write back a changed
+     * component. The ID of the slot stays the same.
+     *
+     * @param slot slot of the component
+     * @param c new component
+     */
+    void set(int slot, Component c);
+
+    /**
+     * removes a component, its slot is kept (and skipped) until the next
+     * compact()
+     *
+     * @param slot slot of the component
+     */
+    void remove(int slot);
+
+    /**
+     * drops the slots of removed components, the remaining components keep
+     * their order and move up to fill the gaps
+     *
+     * @return new slot of every old slot, -1 for removed ones
+     */
+    int[] compact();
+
+    /**
+     * removes every component
+     */
+    void clear();
+
+    /**
+     * returns a version of the store that never changes, so it can be read
+     * on another thread while the store goes on being edited. Consecutive
+     * snapshots share everything that didn't change in between (see
+     * ComponentSnapshot), taking one after every edit is cheap.
+     *
+     * @return snapshot of the store
+     */
+    ComponentSnapshot snapshot();
+}
@@ -0,0 +1,160 @@
+package circuitikztool;
+
+/**
+ * ComponentType describes one kind of component: whether it is a path
+ * component, the LaTeX template and label a new component starts out with,
+ * which device counter numbers it, its glyph and the offsets of its
+ * terminals. The table is built once when the class is loaded and indexed by
+ * the type constants of Component, so type checks and everything the
+ * constructors, painting and wire snapping need are array lookups.
+ *
+ * Adding a component type means adding its constant to Component, its glyph
+ * to ComponentGlyph (non-path components only) and its entry here.
+ */
+public class ComponentType {
+
+    //device counters, LaTeX needs a unique name for every multi-terminal device of the same family
+    final static int NO_COUNTER = -1;
+    final static int TRANSISTOR_COUNTER = 0;
+    final static int OPAMP_COUNTER = 1;
+    final static int TRANSFORMER_COUNTER = 2;
+    final static int BUFFER_COUNTER = 3;
+    final static int BLOCK_COUNTER = 4;
+    final static int MIXER_COUNTER = 5;
+    final static int COUNTERS = 6;
+
+    //stands for the device ID in LaTeX templates
+    private final static String DEVICE_ID = "#";
+
+    final int id;
+    final boolean path;
+    final String latexTemplate;
+    final String label;
+    final int counter;
+
+    //glyph of non-path components, null for path components
+    final ComponentGlyph glyph;
+
+    //x, y of every terminal relative to the position of a non-path component in half grid steps (see HalfGrid)
+    //path components connect at both ends
+    final int[] terminals;
+
+    //vertical distance of the label from the position of a non-path component
+    final double labelOffsetY;
+
+    //types indexed by their constant, null for constants that aren't a component type
+    private static final ComponentType[] TYPES = new ComponentType[Component.SDCAC + 1];
+
+    static {
+        path(Component.PATH, "to[short]", "Wire");
+        path(Component.RESISTOR, "to[R,l=$R$]", "R");
+        path(Component.CAPACITOR, "to[C,l=$C$]", "C");
+        path(Component.INDUCTOR, "to[L,l=$L$]", "L");
+        path(Component.DIODE, "to[D,l=$D$]", "D");
+        path(Component.VOLTAGE_SOURCE, "to[V,l=$V$]", "V");
+        path(Component.CURRENT_SOURCE, "to[isource,l=$I$]", "I");
+        path(Component.SWITCH_NOS, "to[nos]", "NOS");
+        path(Component.ARROW, "--", "->");
+        path(Component.N_ARROW, "-- node[at end, xshift=0.25cm, yshift=0.25cm] {$-$}", "-> -");
+        path(Component.IMPEDANCE, "to[european resistor,l=$Z$]", "Z");
+
+        //C/E (D/S) above and below, B (G) to the left
+        double[] transistor = {0, -1, 0, 1, -1, 0};
+        node(Component.TRANSISTOR_NPN, "node[npn](Q#){Q#}", "NPN Transistor", TRANSISTOR_COUNTER, 0, transistor);
+        node(Component.TRANSISTOR_PNP, "node[pnp](Q#){Q#}", "PNP Transistor", TRANSISTOR_COUNTER, 0, transistor);
+        node(Component.NMOS, "node[nmos](Q#){Q#}", "N-MOS", TRANSISTOR_COUNTER, 0, transistor);
+        node(Component.PMOS, "node[pmos](Q#){Q#}", "P-MOS", TRANSISTOR_COUNTER, 0, transistor);
+        node(Component.NIGBT, "node[nigbt](Q#){Q#}", "N-IGBT", TRANSISTOR_COUNTER, 0, transistor);
+        node(Component.PIGBT, "node[pigbt](Q#){Q#}", "P-IGBT", TRANSISTOR_COUNTER, 0, transistor);
+
+        //VCC nodes have their label above the symbol, GND and VSS nodes below
+        node(Component.GROUND_NODE, "node[ground]{}", "GND", NO_COUNTER, 2.0 / 3, 0, 0);
+        node(Component.VCC_NODE, "node[vcc]{VCC}", "VCC", NO_COUNTER, -2.0 / 3, 0, 0);
+        node(Component.VSS_NODE, "node[vss]{VSS}", "VSS", NO_COUNTER, 2.0 / 3, 0, 0);
+        node(Component.NODE, "node[] {$x$}", "x", NO_COUNTER, 0, 0, 0);
+
+        //3 terminal and 5 terminal opamps share the template but differ in the latex output and in the drawing
+        //outputs of amplifiers aren't broken out, so only the inputs are terminals
+        double[] amplifierInputs = {-1.5, -0.5, -1.5, 0.5};
+        node(Component.OPAMP_3TERMINAL, "node[op amp,scale=1.02] (opamp#) {}", "3T OpAmp", OPAMP_COUNTER, 0, amplifierInputs);
+        node(Component.OPAMP_5TERMINAL, "node[op amp,scale=2.04] (opamp#) {}", "5-Term Opamp", OPAMP_COUNTER, 0, -3, -1, -3, 1);
+        node(Component.FD_OPAMP, "node[fd op amp, scale=1.02] (opamp#) {}", "FD OpAmp", OPAMP_COUNTER, 0, amplifierInputs);
+        node(Component.GM_AMP, "node[gm amp, scale=1.02] (opamp#) {}", "Gm cell", OPAMP_COUNTER, 0, amplifierInputs);
+        node(Component.BUFFER, "node[buffer, scale=1] (buffer#) {}", "Buffer", BUFFER_COUNTER, 0, -1, 0);
+
+        //A1/A2 on the left, B1/B2 on the right
+        double[] transformer = {-1, -1, -1, 1, 1, -1, 1, 1};
+        node(Component.TRANSFORMER, "node[transformer,scale=.952] (T#) {}", "Transformer", TRANSFORMER_COUNTER, 0, transformer);
+        node(Component.TRANSFORMER_WITH_CORE, "node[transformer core,scale=.952] (T#) {}", "Transformer w/ Core", TRANSFORMER_COUNTER, 0, transformer);
+
+        node(Component.BLOCK, "node[block, scale=1] (block#) {}", "Block", BLOCK_COUNTER, 0);
+        node(Component.SACDC, "node[sacdc, scale=1] (block#) {}", "SACDC", BLOCK_COUNTER, 0);
+        node(Component.SDCAC, "node[sdcac, scale=1] (block#) {}", "SDCAC", BLOCK_COUNTER, 0);
+        node(Component.MIXER, "node[mixer, scale=1] (mixer#) {}", "X", MIXER_COUNTER, 0);
+    }
+
+    private ComponentType(int id, boolean path, String latexTemplate, String label, int counter, ComponentGlyph glyph, double[] terminals, double labelOffsetY) {
+        this.id = id;
+        this.path = path;
+        this.latexTemplate = latexTemplate;
+        this.label = label;
+        this.counter = counter;
+        this.glyph = glyph;
+        this.terminals = new int[terminals.length];
+        for (int a = 0; a < terminals.length; a++) {
+            this.terminals[a] = HalfGrid.step(terminals[a]);
+        }
+        this.labelOffsetY = labelOffsetY;
+    }
+
+    private static void path(int id, String latexTemplate, String label) {
+        TYPES[id] = new ComponentType(id, true, latexTemplate, label, NO_COUNTER, null, new double[0], 0);
+    }
+
+    private static void node(int id, String latexTemplate, String label, int counter, double labelOffsetY, double... terminals) {
+        TYPES[id] = new ComponentType(id, false, latexTemplate, label, counter, ComponentGlyph.get(id), terminals, labelOffsetY);
+    }
+
+    /**
+     * returns the type registered for a constant
+     *
+     * @param componentType component type, see the constants of Component
+     * @return component type
+     * @throws IllegalArgumentException if the constant isn't a component type
+     * (for example a command like DELETE)
+     */
+    public static ComponentType get(int componentType) {
+        ComponentType type = find(componentType);
+        if (type == null) {
+            throw new IllegalArgumentException("No component type exists for constant " + componentType);
+        }
+        return type;
+    }
+
+    /**
+     * returns the type registered for a constant
+     *
+     * @param componentType component type, see the constants of Component
+     * @return component type, null if the constant isn't a component type
+     */
+    static ComponentType find(int componentType) {
+        if (componentType < 0 || componentType >= TYPES.length) {
+            return null;
+        }
+        return TYPES[componentType];
+    }
+
+    /**
+     * returns the LaTeX string a new component of this type starts out with
+     *
+     * @param deviceID device ID of the new component, ignored by types
+     * without a device counter
+     * @return LaTeX parameter string
+     */
+    public String getLatexTemplate(int deviceID) {
+        if (counter == NO_COUNTER) {
+            return latexTemplate;
+        }
+        return latexTemplate.replace(DEVICE_ID, Integer.toString(deviceID));
+    }
+}
@@ -0,0 +1,70 @@
+package circuitikztool;
+
+import java.awt.geom.Rectangle2D;
+
+/**
+ * ComponentView is the read only side of the placed components of a
+ * schematic: the live stores (see ComponentStore) and the snapshots taken of
+ * them (see ComponentSnapshot). Anything that only reads components, in
+ * particular everything running outside of the event dispatch thread, takes a
+ * ComponentView and can't change what it was given.
+ *
+ * Components live in slots in the order they were placed, every component has
+ * an ID that is never used again. Slots of removed components are kept until
+ * the store is compacted, loops over the slots have to skip them.
+ */
+public interface ComponentView {
+
+    /**
+     * @return number of slots, including removed ones
+     */
+    int slotCount();
+
+    /**
+     * @return number of components, not counting removed ones
+     */
+    int count();
+
+    /**
+     * @return number of removed slots that compact() would drop
+     */
+    int removedCount();
+
+    /**
+     * @param slot slot of a component
+     * @return true if the component in the slot was removed
+     */
+    boolean isRemoved(int slot);
+
+    /**
+     * @param slot slot of a component
+     * @return ID of the component in the slot
+     */
+    long getId(int slot);
+
+    /**
+     * finds the slot of a component
+     *
+     * @param id ID of the component
+     * @return slot of the component, -1 if there is no component with the ID
+     */
+    int slotOf(long id);
+
+    /**
+     * returns the component in a slot. Changes to it only take effect once
+     * it is written back to a store with ComponentStore.set()
+     *
+     * @param slot slot of the component, must not be removed
+     * @return component in the slot
+     */
+    Component get(int slot);
+
+    /**
+     * returns the area covered by the symbol of a component, the same as
+     * get(slot).getBounds() but without building the component
+     *
+     * @param slot slot of the component, must not be removed
+     * @return bounding box of the symbol in circuitikz coordinates
+     */
+    Rectangle2D getBounds(int slot);
+}
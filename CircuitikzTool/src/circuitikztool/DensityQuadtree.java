@@ -0,0 +1,133 @@
+package circuitikztool;
+
+import java.awt.geom.Rectangle2D;
+
+/**
+ * DensityQuadtree is a summary of where the placed components of a schematic
+ * are, used to draw the schematic when it is zoomed out so far that single
+ * components are only a pixel or two in size. Every node of the tree covers a
+ * square area of the schematic and counts the components whose center lies
+ * inside of it. Drawing the schematic at a given zoom then only needs the
+ * nodes of one size, no matter how many components there are.
+ */
+public class DensityQuadtree {
+
+    //smallest cell the tree subdivides into, in circuitikz coordinates
+    final static double MIN_CELL_SIZE = 1;
+
+    /**
+     * receives the cells found by query()
+     */
+    public interface CellVisitor {
+
+        /**
+         * called once for every non-empty cell
+         *
+         * @param x left side of the cell in circuitikz coordinates
+         * @param y top side of the cell in circuitikz coordinates
+         * @param size width and height of the cell in circuitikz coordinates
+         * @param count number of components in the cell
+         */
+        void visit(double x, double y, double size, int count);
+    }
+
+    private static class Node {
+
+        final double x, y, size;
+        int count;
+        Node[] children;
+
+        Node(double x, double y, double size) {
+            this.x = x;
+            this.y = y;
+            this.size = size;
+        }
+    }
+
+    private final Node root;
+
+    /**
+     * builds the tree for a store of components
+     *
+     * @param components components to summarize
+     */
+    public DensityQuadtree(ComponentStore components) {
+        if (components.count() == 0) {
+            root = null;
+            return;
+        }
+
+        //the root is the smallest power of two sized square around every component center
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        double[] centers = new double[components.count() * 2];
+        int found = 0;
+        for (int a = 0; a < components.slotCount(); a++) {
+            if (components.isRemoved(a)) {
+                continue;
+            }
+            Rectangle2D b = components.getBounds(a);
+            centers[found++] = b.getCenterX();
+            centers[found++] = b.getCenterY();
+            minX = Math.min(minX, b.getCenterX());
+            minY = Math.min(minY, b.getCenterY());
+            maxX = Math.max(maxX, b.getCenterX());
+            maxY = Math.max(maxY, b.getCenterY());
+        }
+        double size = MIN_CELL_SIZE;
+        while (size <= Math.max(maxX - Math.floor(minX), maxY - Math.floor(minY))) {
+            size *= 2;
+        }
+        root = new Node(Math.floor(minX), Math.floor(minY), size);
+
+        for (int a = 0; a < centers.length; a += 2) {
+            insert(centers[a], centers[a + 1]);
+        }
+    }
+
+    private void insert(double x, double y) {
+        Node n = root;
+        n.count++;
+        while (n.size > MIN_CELL_SIZE) {
+            if (n.children == null) {
+                n.children = new Node[4];
+            }
+            double half = n.size / 2;
+            int quadrant = (x >= n.x + half ? 1 : 0) + (y >= n.y + half ? 2 : 0);
+            if (n.children[quadrant] == null) {
+                n.children[quadrant] = new Node(n.x + (quadrant % 2) * half, n.y + (quadrant / 2) * half, half);
+            }
+            n = n.children[quadrant];
+            n.count++;
+        }
+    }
+
+    /**
+     * visits every non-empty cell inside the given area. cells are as small as
+     * possible but never smaller than cellSize (unless the tree doesn't
+     * subdivide any further).
+     *
+     * @param area area to search in circuitikz coordinates
+     * @param cellSize smallest cell size wanted in circuitikz coordinates
+     * @param visitor receives the cells
+     */
+    public void query(Rectangle2D area, double cellSize, CellVisitor visitor) {
+        if (root != null) {
+            query(root, area, cellSize, visitor);
+        }
+    }
+
+    private void query(Node n, Rectangle2D area, double cellSize, CellVisitor visitor) {
+        if (n.x > area.getMaxX() || n.y > area.getMaxY() || n.x + n.size < area.getMinX() || n.y + n.size < area.getMinY()) {
+            return;
+        }
+        if (n.children == null || n.size / 2 < cellSize) {
+            visitor.visit(n.x, n.y, n.size, n.count);
+            return;
+        }
+        for (Node child : n.children) {
+            if (child != null) {
+                query(child, area, cellSize, visitor);
+            }
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package circuitikztool;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+
+/**
+ * FrameProfiler measures what drawing the CircuitMaker window costs and draws
+ * the results as an overlay in the top left corner of the window. It is
+ * toggled with F3 and does (almost) nothing while it is hidden.
+ *
+ * Every frame is split into sections (background and grid, component
+ * symbols, labels and the overlay). The time of every section is kept in a
+ * rolling histogram of the last HISTORY frames, so slow frames on a real
+ * schematic show up as a long tail next to the average. The profiler also
+ * shows the frame rate, how many components were drawn and culled the last
+ * time the static layer was redrawn and how fast the drawing thread allocates
+ * memory (only if the JVM can measure that).
+ */
+public class FrameProfiler {
+
+    //sections a frame is split into, used as index for begin() and end()
+    final static int BACKGROUND = 0;
+    final static int COMPONENTS = 1;
+    final static int LABELS = 2;
+    final static int OVERLAY = 3;
+    final static int TOTAL = 4;
+    private final static String[] SECTION_NAMES = {"background/grid", "components", "labels", "overlay", "frame total"};
+
+    //number of frames kept in the rolling histograms
+    final static int HISTORY = 240;
+
+    //how often (in nanoseconds) the allocation rate is sampled
+    final static long ALLOCATION_SAMPLE_INTERVAL = 500000000L;
+
+    //width of one histogram bucket in nanoseconds, the last bucket collects everything slower
+    final static long BUCKET_WIDTH = 1000000L;
+    final static int BUCKETS = 33;
+
+    private final static Font FONT = new Font("Monospaced", Font.PLAIN, 11);
+
+    /**
+     * the last HISTORY samples of a section, in nanoseconds
+     */
+    static class Histogram {
+
+        private final long[] samples = new long[HISTORY];
+        private int next = 0;
+        private int count = 0;
+
+        void add(long sample) {
+            samples[next] = sample;
+            next = (next + 1) % HISTORY;
+            count = Math.min(count + 1, HISTORY);
+        }
+
+        long average() {
+            if (count == 0) {
+                return 0;
+            }
+            long sum = 0;
+            for (int a = 0; a < count; a++) {
+                sum += samples[a];
+            }
+            return sum / count;
+        }
+
+        long max() {
+            long max = 0;
+            for (int a = 0; a < count; a++) {
+                max = Math.max(max, samples[a]);
+            }
+            return max;
+        }
+
+        /**
+         * sorts the samples into BUCKETS buckets of BUCKET_WIDTH nanoseconds
+         *
+         * @return number of samples in every bucket
+         */
+        int[] buckets() {
+            int[] buckets = new int[BUCKETS];
+            for (int a = 0; a < count; a++) {
+                buckets[(int) Math.min(BUCKETS - 1, samples[a] / BUCKET_WIDTH)]++;
+            }
+            return buckets;
+        }
+    }
+
+    private boolean enabled = false;
+
+    private final Histogram[] sections = new Histogram[SECTION_NAMES.length];
+    private final long[] sectionStart = new long[SECTION_NAMES.length];
+    private final long[] sectionTime = new long[SECTION_NAMES.length];
+
+    //start times of recent frames, used to count the frames of the last second
+    private final long[] frameStarts = new long[HISTORY];
+    private int nextFrameStart = 0;
+
+    //components drawn and culled the last time the static layer was redrawn
+    private int drawn = 0;
+    private int culled = 0;
+
+    //allocation rate of the drawing thread, null if the JVM doesn't support measuring it
+    private final com.sun.management.ThreadMXBean allocationBean;
+    private long allocationSampleTime = 0;
+    private long allocationSampleBytes = 0;
+    private double bytesPerSecond = 0;
+
+    /**
+     * creates a hidden profiler
+     */
+    public FrameProfiler() {
+        for (int a = 0; a < sections.length; a++) {
+            sections[a] = new Histogram();
+        }
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            allocationBean = (com.sun.management.ThreadMXBean) bean;
+            allocationBean.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            allocationBean = null;
+        }
+    }
+
+    /**
+     * shows or hides the profiler, the histograms start over every time it is
+     * shown
+     */
+    public void toggle() {
+        enabled = !enabled;
+        if (enabled) {
+            for (int a = 0; a < sections.length; a++) {
+                sections[a] = new Histogram();
+            }
+            Arrays.fill(frameStarts, 0);
+            allocationSampleTime = 0;
+            bytesPerSecond = 0;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * starts measuring a frame, has to be called at the start of paint()
+     */
+    public void beginFrame() {
+        if (!enabled) {
+            return;
+        }
+        Arrays.fill(sectionTime, 0);
+        long now = System.nanoTime();
+        frameStarts[nextFrameStart] = now;
+        nextFrameStart = (nextFrameStart + 1) % HISTORY;
+        sectionStart[TOTAL] = now;
+    }
+
+    /**
+     * starts timing a section of the frame
+     *
+     * @param section BACKGROUND, COMPONENTS, LABELS or OVERLAY
+     */
+    public void begin(int section) {
+        if (enabled) {
+            sectionStart[section] = System.nanoTime();
+        }
+    }
+
+    /**
+     * stops timing a section of the frame, a section can be timed multiple
+     * times per frame and the times are added up
+     *
+     * @param section BACKGROUND, COMPONENTS, LABELS or OVERLAY
+     */
+    public void end(int section) {
+        if (enabled) {
+            sectionTime[section] += System.nanoTime() - sectionStart[section];
+        }
+    }
+
+    /**
+     * records how many components were drawn and how many were skipped
+     * because they weren't visible
+     *
+     * @param drawn number of components drawn
+     * @param culled number of components skipped
+     */
+    public void setComponentCounts(int drawn, int culled) {
+        this.drawn = drawn;
+        this.culled = culled;
+    }
+
+    /**
+     * finishes measuring a frame, has to be called at the end of paint()
+     * before the profiler itself is drawn
+     */
+    public void endFrame() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.nanoTime();
+        sectionTime[TOTAL] = now - sectionStart[TOTAL];
+        for (int a = 0; a < sections.length; a++) {
+            sections[a].add(sectionTime[a]);
+        }
+
+        if (allocationBean != null && now - allocationSampleTime >= ALLOCATION_SAMPLE_INTERVAL) {
+            long bytes = allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            if (allocationSampleTime != 0) {
+                bytesPerSecond = (bytes - allocationSampleBytes) * 1e9 / (now - allocationSampleTime);
+            }
+            allocationSampleTime = now;
+            allocationSampleBytes = bytes;
+        }
+    }
+
+    /**
+     * draws the profiler overlay in the top left corner, does nothing if the
+     * profiler is hidden
+     *
+     * @param g2d graphics object to be drawn onto
+     */
+    public void paint(Graphics2D g2d) {
+        if (!enabled) {
+            return;
+        }
+        //frames per second is simply the number of frames that started during the last second
+        long now = System.nanoTime();
+        int fps = 0;
+        for (long start : frameStarts) {
+            if (start != 0 && now - start <= 1000000000L) {
+                fps++;
+            }
+        }
+
+        String[] lines = new String[SECTION_NAMES.length + 3];
+        lines[0] = String.format("%d fps", fps);
+        for (int a = 0; a < SECTION_NAMES.length; a++) {
+            lines[a + 1] = String.format("%-16s avg %6.2f ms  max %6.2f ms", SECTION_NAMES[a], sections[a].average() / 1e6, sections[a].max() / 1e6);
+        }
+        lines[SECTION_NAMES.length + 1] = String.format("components drawn %d, culled %d", drawn, culled);
+        lines[SECTION_NAMES.length + 2] = allocationBean == null ? "allocation rate unavailable" : String.format("allocating %.1f MB/s", bytesPerSecond / (1024 * 1024));
+
+        g2d.setFont(FONT);
+        int lineHeight = g2d.getFontMetrics().getHeight();
+        int width = 0;
+        for (String line : lines) {
+            width = Math.max(width, g2d.getFontMetrics().stringWidth(line));
+        }
+        int histogramHeight = 40;
+        int height = lines.length * lineHeight + histogramHeight + 15;
+        width = Math.max(width, BUCKETS * 4) + 10;
+
+        g2d.setColor(new Color(0, 0, 0, 180));
+        g2d.fillRect(5, 5, width, height);
+        g2d.setColor(Color.WHITE);
+        for (int a = 0; a < lines.length; a++) {
+            g2d.drawString(lines[a], 10, 5 + (a + 1) * lineHeight);
+        }
+
+        //histogram of the frame totals, one bar per millisecond, the last bar holds every frame slower than that
+        int[] buckets = sections[TOTAL].buckets();
+        int tallest = 1;
+        for (int b : buckets) {
+            tallest = Math.max(tallest, b);
+        }
+        int base = 5 + lines.length * lineHeight + 5 + histogramHeight;
+        for (int a = 0; a < BUCKETS; a++) {
+            int barHeight = buckets[a] * histogramHeight / tallest;
+            //frames that fit into the repaint interval are green, anything slower is red
+            g2d.setColor(a * BUCKET_WIDTH < RepaintScheduler.MIN_FRAME_INTERVAL * 1000000L ? Color.GREEN : Color.RED);
+            g2d.fillRect(10 + a * 4, base - barHeight, 3, barHeight);
+        }
+    }
+}
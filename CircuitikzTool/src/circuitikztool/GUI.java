@@ -13,6 +13,7 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.Arrays;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.JFileChooser;
@@ -30,12 +31,44 @@ import java.awt.datatransfer.Clipboard;
  */
 public class GUI extends javax.swing.JFrame {
 
+    //ID of the component shown in every row of the component list, ascending like the rows
+    private long[] componentListIds = new long[0];
+
     /**
      * Creates new form GUI
      */
     public GUI() {
         initComponents();
 
+        //not part of the generated form so it survives the form editor regenerating initComponents()
+        javax.swing.JMenuItem exportPngOption = new javax.swing.JMenuItem("Export PNG...");
+        exportPngOption.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                exportPngActionPerformed(evt);
+            }
+        });
+        jMenu1.add(exportPngOption);
+
+        javax.swing.JMenuItem relabelOption = new javax.swing.JMenuItem("Relabel Selection...");
+        relabelOption.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                relabelSelectionActionPerformed(evt);
+            }
+        });
+        jMenu1.add(relabelOption);
+
+        //the schematic takes focus when clicked, tool shortcuts still have to work from there
+        //arrow keys and delete are handled by the schematic itself since they act on the selection, and the focus stays
+        //on the schematic so they keep working. modifiers are left alone, shift-click selects. copying the output and
+        //clearing the schematic are left to the tool selector, a stray shift+d on the schematic must not wipe it
+        schematicWindow.addKeyListener(new java.awt.event.KeyAdapter() {
+            @Override
+            public void keyPressed(java.awt.event.KeyEvent evt) {
+                if (!evt.isActionKey() && !evt.isControlDown() && !evt.isAltDown() && !evt.isMetaDown()) {
+                    selectTool(evt.getKeyChar());
+                }
+            }
+        });
     }
 
     /**
@@ -359,6 +392,65 @@ public class GUI extends javax.swing.JFrame {
 
     }//GEN-LAST:event_saveOptionActionPerformed
 
+    private void exportPngActionPerformed(java.awt.event.ActionEvent evt) {
+        String dpiText = JOptionPane.showInputDialog(this, "Resolution (dpi):", "300");
+        if (dpiText == null) {
+            return;
+        }
+        final double dpi;
+        try {
+            dpi = Double.parseDouble(dpiText.trim());
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(this, "\"" + dpiText + "\" is not a valid resolution");
+            return;
+        }
+
+        JFileChooser fc = new JFileChooser();
+        fc.setApproveButtonText("Export");
+        fc.setCurrentDirectory(new File("."));
+        if (fc.showSaveDialog(GUI.this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        final File file = fc.getSelectedFile().getName().toLowerCase().endsWith(".png")
+                ? fc.getSelectedFile() : new File(fc.getSelectedFile().getAbsolutePath() + ".png");
+
+        //big exports take a while, render them in the background so the window keeps responding
+        //the snapshot stays as it is while the user goes on editing
+        final ComponentView model = schematicWindow.getModelSnapshot();
+        new Thread(new Runnable() {
+            public void run() {
+                String message;
+                try {
+                    PngExporter.export(CircuitMaker.getPlacedComponents(model), dpi, file);
+                    message = "Exported " + file.getName();
+                } catch (IOException | IllegalArgumentException ex) {
+                    Logger.getLogger(GUI.class.getName()).log(Level.SEVERE, null, ex);
+                    message = "Export failed: " + ex.getMessage();
+                }
+                final String result = message;
+                java.awt.EventQueue.invokeLater(new Runnable() {
+                    public void run() {
+                        JOptionPane.showMessageDialog(GUI.this, result);
+                    }
+                });
+            }
+        }, "PNG export").start();
+    }
+
+    private void relabelSelectionActionPerformed(java.awt.event.ActionEvent evt) {
+        int count = schematicWindow.getSelectionSize();
+        if (count == 0) {
+            JOptionPane.showMessageDialog(this, "Nothing is selected");
+            return;
+        }
+        String label = JOptionPane.showInputDialog(this, "Label for the " + count + " selected components:", schematicWindow.getSelectedComponentLabel());
+        if (label == null) {
+            return;
+        }
+        schematicWindow.setSelectionLabel(label);
+        updateComponentList();
+    }
+
     private void openOptionActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_openOptionActionPerformed
         JFileChooser fc = new JFileChooser();
         fc.setCurrentDirectory(new File("."));
@@ -381,7 +473,7 @@ public class GUI extends javax.swing.JFrame {
 
     private void componentListValueChanged(javax.swing.event.ListSelectionEvent evt) {//GEN-FIRST:event_componentListValueChanged
         //stuff that happens whenever we change the selected component in the selection list
-        schematicWindow.setSelectedComponentIndex(componentList.getSelectedIndex());
+        schematicWindow.setSelectedComponentIds(getComponentListIds(componentList.getSelectedIndices()));
         componentString.setText(schematicWindow.getSelectedComponentLatexString());
         componentLabel.setText(schematicWindow.getSelectedComponentLabel());
     }//GEN-LAST:event_componentListValueChanged
@@ -486,13 +578,46 @@ public class GUI extends javax.swing.JFrame {
      * change has occurred to any of the components in the schematic window
      */
     public void updateComponentList() {
+        //replacing the list data clears the selection of the list, which would clear the selection of the schematic too
+        long[] selectedIds = schematicWindow.getSelectedComponentIds();
         String[] listItems = schematicWindow.getComponentList();
+        componentListIds = schematicWindow.getComponentIds();
         componentList.setListData(listItems);
-        componentList.setSelectedIndex(schematicWindow.getSelectedComponentIndex());
+
+        //rows are in ascending ID order, so the row of an ID can be looked up with a binary search
+        int[] selected = new int[selectedIds.length];
+        int found = 0;
+        for (long id : selectedIds) {
+            int row = Arrays.binarySearch(componentListIds, id);
+            if (row >= 0) {
+                selected[found++] = row;
+            }
+        }
+        selected = Arrays.copyOf(selected, found);
+        componentList.setSelectedIndices(selected);
+        //the list is where the selection lives, so the schematic follows whatever it ended up selecting
+        schematicWindow.setSelectedComponentIds(getComponentListIds(componentList.getSelectedIndices()));
+        if (selected.length > 0) {
+            componentList.ensureIndexIsVisible(selected[0]);
+        }
 
         updateLatexString(); // added
     }
 
+    /**
+     * maps rows of the component list to the IDs of their components
+     *
+     * @param rows rows of the component list
+     * @return ID of the component in every row
+     */
+    private long[] getComponentListIds(int[] rows) {
+        long[] ids = new long[rows.length];
+        for (int a = 0; a < rows.length; a++) {
+            ids[a] = componentListIds[rows[a]];
+        }
+        return ids;
+    }
+
     public void updateTheme() {
         americanCheckbox.setBackground(Preferences.themeBackgroundColor);
         componentLabel.setBackground(Preferences.themeAccent);
@@ -576,97 +701,7 @@ public class GUI extends javax.swing.JFrame {
         else {
             // componentList.requestFocus();
             toolSelector.requestFocus();
-            switch (evt.getKeyChar()) {
-                case 'w': // wire
-                    toolSelector.setSelectedIndex(0);
-                    break;
-                case 'r': // resistor
-                    toolSelector.setSelectedIndex(1);
-                    break;
-                case 'c': // capacitor
-                    toolSelector.setSelectedIndex(2);
-                    break;
-                case 'l': // inductor
-                    toolSelector.setSelectedIndex(3);
-                    break;
-                case 'd': // diode
-                    toolSelector.setSelectedIndex(4);
-                    break;
-                case 'v': // voltage source
-                    toolSelector.setSelectedIndex(5);
-                    break;
-                case 'i': // current source
-                    toolSelector.setSelectedIndex(6);
-                    break;
-                case 'g': // GND node
-                    toolSelector.setSelectedIndex(7);
-                    break;
-                case 'f': // VCC node
-                    toolSelector.setSelectedIndex(8);
-                    break;
-                case 'n': // NMOS
-                    toolSelector.setSelectedIndex(12);
-                    break;
-                case 'p': // PMOS
-                    toolSelector.setSelectedIndex(13);
-                    break;
-                case 'o': // OpAmp 3 terminals
-                    toolSelector.setSelectedIndex(16);
-                    break;
-
-                case 's': // NOS switch
-                    toolSelector.setSelectedIndex(20);
-                    break;
-                case 'b': // buffer
-                    toolSelector.setSelectedIndex(21);
-                    break;
-                case 'F': // FD OpAmp
-                    toolSelector.setSelectedIndex(22);
-                    break;
-                case 'G': // GM Amp
-                    toolSelector.setSelectedIndex(23);
-                    break;
-
-                case 'B': // Block
-                    toolSelector.setSelectedIndex(24);
-                    break;    
-                case 'M': // Mixer
-                    toolSelector.setSelectedIndex(25);
-                    break; 
-                case 'W': // ArroW
-                    toolSelector.setSelectedIndex(26);
-                    break;   
-                case '-': // Arrow with '-' at the tip
-                    toolSelector.setSelectedIndex(27);
-                    break; 
-                case 'N': // Node label
-                    toolSelector.setSelectedIndex(28);
-                    break; 
-                case 'Z': // impedance label
-                    toolSelector.setSelectedIndex(29);
-                    break;
-                case 'A': // SACDC label
-                    toolSelector.setSelectedIndex(30);
-                    break;
-                case 'a': // SDCAC label
-                    toolSelector.setSelectedIndex(31);
-                    break;
-                case 'y': // copy current output to clipboard
-                    String myString = schematicWindow.generateLatexString();
-                    StringSelection stringSelection = new StringSelection(myString);
-                    Clipboard clipboard = Toolkit.getDefaultToolkit().getSystemClipboard();
-                    clipboard.setContents(stringSelection, null);
-                    break;
-
-                case 'D': // clear schematic, select wire
-                        schematicWindow.clearSchematic();
-                        toolSelector.setSelectedIndex(0);
-                        Component.resetStatics();
-                    break;
-
-                default:
-                    break;
-            }
+            selectShortcut(evt.getKeyChar());
         }
         // F Added 01/02/2021
 
@@ -674,10 +709,126 @@ public class GUI extends javax.swing.JFrame {
     }
 
     /**
+     * carries out the single key shortcut for a character, selecting a tool,
+     * copying the output or clearing the schematic
+     *
+     * @param key character typed, anything that isn't a shortcut is ignored
+     */
+    private void selectShortcut(char key) {
+        switch (key) {
+            case 'y': // copy current output to clipboard
+                String myString = schematicWindow.generateLatexString();
+                StringSelection stringSelection = new StringSelection(myString);
+                Clipboard clipboard = Toolkit.getDefaultToolkit().getSystemClipboard();
+                clipboard.setContents(stringSelection, null);
+                break;
+
+            case 'D': // clear schematic, select wire
+                    schematicWindow.clearSchematic();
+                    toolSelector.setSelectedIndex(0);
+                    Component.resetStatics();
+                break;
+
+            default:
+                selectTool(key);
+                break;
+        }
+    }
+
+    /**
+     * selects the tool that belongs to a shortcut character, the only
+     * shortcuts that also work while the schematic has focus
      *
+     * @param key character typed, anything that isn't a tool shortcut is
+     * ignored
+     */
+    private void selectTool(char key) {
+        switch (key) {
+            case 'w': // wire
+                toolSelector.setSelectedIndex(0);
+                break;
+            case 'r': // resistor
+                toolSelector.setSelectedIndex(1);
+                break;
+            case 'c': // capacitor
+                toolSelector.setSelectedIndex(2);
+                break;
+            case 'l': // inductor
+                toolSelector.setSelectedIndex(3);
+                break;
+            case 'd': // diode
+                toolSelector.setSelectedIndex(4);
+                break;
+            case 'v': // voltage source
+                toolSelector.setSelectedIndex(5);
+                break;
+            case 'i': // current source
+                toolSelector.setSelectedIndex(6);
+                break;
+            case 'g': // GND node
+                toolSelector.setSelectedIndex(7);
+                break;
+            case 'f': // VCC node
+                toolSelector.setSelectedIndex(8);
+                break;
+            case 'n': // NMOS
+                toolSelector.setSelectedIndex(12);
+                break;
+            case 'p': // PMOS
+                toolSelector.setSelectedIndex(13);
+                break;
+            case 'o': // OpAmp 3 terminals
+                toolSelector.setSelectedIndex(16);
+                break;
+
+            case 's': // NOS switch
+                toolSelector.setSelectedIndex(20);
+                break;
+            case 'b': // buffer
+                toolSelector.setSelectedIndex(21);
+                break;
+            case 'F': // FD OpAmp
+                toolSelector.setSelectedIndex(22);
+                break;
+            case 'G': // GM Amp
+                toolSelector.setSelectedIndex(23);
+                break;
+
+            case 'B': // Block
+                toolSelector.setSelectedIndex(24);
+                break;    
+            case 'M': // Mixer
+                toolSelector.setSelectedIndex(25);
+                break; 
+            case 'W': // ArroW
+                toolSelector.setSelectedIndex(26);
+                break;   
+            case '-': // Arrow with '-' at the tip
+                toolSelector.setSelectedIndex(27);
+                break; 
+            case 'N': // Node label
+                toolSelector.setSelectedIndex(28);
+                break; 
+            case 'Z': // impedance label
+                toolSelector.setSelectedIndex(29);
+                break;
+            case 'A': // SACDC label
+                toolSelector.setSelectedIndex(30);
+                break;
+            case 'a': // SDCAC label
+                toolSelector.setSelectedIndex(31);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * requests a new frame of the schematic window, requests are coalesced by
+     * the schematic window's RepaintScheduler
      */
     public void repaintCircuitMaker() {
-        schematicWindow.repaint();
+        schematicWindow.requestRepaint();
     }
 
     /**
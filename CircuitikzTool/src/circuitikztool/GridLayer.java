@@ -0,0 +1,87 @@
+package circuitikztool;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.TexturePaint;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * GridLayer draws the background and the dot grid of the CircuitMaker window.
+ * Instead of drawing every half grid point on its own the layer renders a
+ * single grid cell into a small image once and fills the whole window with it
+ * as a TexturePaint. The tile is only rebuilt when the grid size or the theme
+ * colors change, moving the origin only moves the anchor of the texture.
+ */
+public class GridLayer {
+
+    //dots closer together than this (in pixels) are not drawn
+    final static int MIN_DOT_SPACING = 4;
+
+    //cached texture and the values it was built for
+    private TexturePaint texture;
+    private double textureGridSize;
+    private Color textureBackground;
+    private Color textureGrid;
+
+    /**
+     * fills the given area with the background color and the dot grid.
+     *
+     * @param g2d graphics object to be drawn onto
+     * @param gridSize current size of the grid in pixels
+     * @param phaseX x position (in pixels) of any grid point, usually the
+     * origin
+     * @param phaseY y position (in pixels) of any grid point, usually the
+     * origin
+     * @param width width of the area to fill
+     * @param height height of the area to fill
+     */
+    public void paint(Graphics2D g2d, double gridSize, double phaseX, double phaseY, int width, int height) {
+        if (texture == null
+                || textureGridSize != gridSize
+                || !Preferences.backgroundColor.equals(textureBackground)
+                || !Preferences.gridColor.equals(textureGrid)) {
+            rebuild(gridSize);
+        }
+
+        //only the anchor of the texture depends on where the origin currently is, the tile itself is shared
+        Rectangle2D tileBounds = texture.getAnchorRect();
+        g2d.setPaint(new TexturePaint(texture.getImage(), new Rectangle2D.Double(phaseX, phaseY, tileBounds.getWidth(), tileBounds.getHeight())));
+        g2d.fillRect(0, 0, width, height);
+    }
+
+    /**
+     * throws away the cached tile, the next call to paint() rebuilds it
+     */
+    public void invalidate() {
+        texture = null;
+    }
+
+    private void rebuild(double gridSize) {
+        //one tile covers exactly one grid cell, which holds four of the half grid dots
+        int size = Math.max(2, (int) Math.round(gridSize));
+        int half = size / 2;
+
+        BufferedImage tile = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = tile.createGraphics();
+        g.setColor(Preferences.backgroundColor);
+        g.fillRect(0, 0, size, size);
+        g.dispose();
+
+        //when zoomed far out the half grid dots (and eventually all dots) would blend into a solid color, so we leave them out
+        int dot = Preferences.gridColor.getRGB();
+        if (size >= MIN_DOT_SPACING) {
+            tile.setRGB(0, 0, dot);
+        }
+        if (half >= MIN_DOT_SPACING) {
+            tile.setRGB(half, 0, dot);
+            tile.setRGB(0, half, dot);
+            tile.setRGB(half, half, dot);
+        }
+
+        texture = new TexturePaint(tile, new Rectangle2D.Double(0, 0, size, size));
+        textureGridSize = gridSize;
+        textureBackground = Preferences.backgroundColor;
+        textureGrid = Preferences.gridColor;
+    }
+}
@@ -0,0 +1,95 @@
+package circuitikztool;
+
+import java.awt.geom.Point2D;
+
+/**
+ * HalfGrid converts between circuitikz coordinates and the half grid steps
+ * components are stored in. Everything the user places snaps to half grid
+ * points, so a position is kept exactly as two ints (the number of half grid
+ * steps from the origin), packed into a single long. Packed positions can be
+ * compared and hashed directly, they are only turned into doubles where they
+ * are drawn or written out.
+ */
+public class HalfGrid {
+
+    //half grid steps per circuitikz unit
+    final static int STEPS_PER_UNIT = 2;
+
+    private HalfGrid() {
+    }
+
+    /**
+     * converts a coordinate to the nearest half grid step
+     *
+     * @param coordinate coordinate in circuitikz units
+     * @return number of half grid steps
+     */
+    public static int step(double coordinate) {
+        return (int) Math.round(coordinate * STEPS_PER_UNIT);
+    }
+
+    /**
+     * packs a position given in half grid steps
+     *
+     * @param x horizontal position in half grid steps
+     * @param y vertical position in half grid steps
+     * @return packed position
+     */
+    public static long pack(int x, int y) {
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+
+    /**
+     * packs a point, snapping it to the nearest half grid point
+     *
+     * @param p point in circuitikz coordinates
+     * @return packed position
+     */
+    public static long pack(Point2D p) {
+        return pack(step(p.getX()), step(p.getY()));
+    }
+
+    public static int stepX(long packed) {
+        return (int) (packed >> 32);
+    }
+
+    public static int stepY(long packed) {
+        return (int) packed;
+    }
+
+    /**
+     * @param packed packed position
+     * @return x coordinate in circuitikz units
+     */
+    public static double x(long packed) {
+        return stepX(packed) / (double) STEPS_PER_UNIT;
+    }
+
+    /**
+     * @param packed packed position
+     * @return y coordinate in circuitikz units
+     */
+    public static double y(long packed) {
+        return stepY(packed) / (double) STEPS_PER_UNIT;
+    }
+
+    /**
+     * @param packed packed position
+     * @return position as a point in circuitikz coordinates
+     */
+    public static Point2D toPoint(long packed) {
+        return new Point2D.Double(x(packed), y(packed));
+    }
+
+    /**
+     * moves a packed position by a number of half grid steps
+     *
+     * @param packed packed position
+     * @param dx horizontal distance in half grid steps
+     * @param dy vertical distance in half grid steps
+     * @return moved position
+     */
+    public static long translate(long packed, int dx, int dy) {
+        return pack(stepX(packed) + dx, stepY(packed) + dy);
+    }
+}
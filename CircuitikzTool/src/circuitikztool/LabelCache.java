@@ -0,0 +1,109 @@
+package circuitikztool;
+
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LabelCache holds the laid out text of component labels. Laying out a label
+ * (turning the string into glyphs and measuring it) is by far the most
+ * expensive part of drawing a simple component, so it is done once per label
+ * text and font render context and shared by every component with the same
+ * label. The label font has a fixed pixel size, so the layout does not depend
+ * on the zoom level. Labels are cached per text and font render context, the
+ * schematic window, the tile workers and the PNG export draw with different
+ * contexts and each get their own layouts. The cache keeps the most recently
+ * used layouts of all contexts together and drops the oldest ones once it is
+ * full.
+ */
+public class LabelCache {
+
+    //maximum number of layouts kept around, shared by all font render contexts
+    final static int MAX_ENTRIES = 4096;
+
+    /**
+     * laid out label text
+     */
+    public static class Layout {
+
+        final String text;
+        final FontRenderContext renderContext;
+        final GlyphVector glyphs;
+        final int width;
+
+        private Layout(String text, FontRenderContext renderContext) {
+            this.text = text;
+            this.renderContext = renderContext;
+            glyphs = Component.LABEL_FONT.createGlyphVector(renderContext, text);
+            width = (int) Math.round(glyphs.getLogicalBounds().getWidth());
+        }
+
+        /**
+         * checks whether this layout can be used to draw the given text with the
+         * given font render context
+         *
+         * @param text label text
+         * @param renderContext font render context of the graphics object
+         * @return true if the layout is still valid
+         */
+        boolean matches(String text, FontRenderContext renderContext) {
+            return this.text.equals(text) && this.renderContext.equals(renderContext);
+        }
+    }
+
+    /**
+     * label text together with the font render context it is laid out for
+     */
+    private static class Key {
+
+        final String text;
+        final FontRenderContext renderContext;
+
+        Key(String text, FontRenderContext renderContext) {
+            this.text = text;
+            this.renderContext = renderContext;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return text.equals(other.text) && renderContext.equals(other.renderContext);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * text.hashCode() + renderContext.hashCode();
+        }
+    }
+
+    //least recently used labels are dropped first
+    private static final LinkedHashMap<Key, Layout> entries = new LinkedHashMap<Key, Layout>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Layout> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * returns the laid out text of a label, laying it out if it isn't cached
+     * yet
+     *
+     * @param text label text
+     * @param renderContext font render context of the graphics object the
+     * label will be drawn onto
+     * @return laid out label
+     */
+    public static synchronized Layout get(String text, FontRenderContext renderContext) {
+        Key key = new Key(text, renderContext);
+        Layout e = entries.get(key);
+        if (e == null) {
+            e = new Layout(text, renderContext);
+            entries.put(key, e);
+        }
+        return e;
+    }
+}
@@ -0,0 +1,259 @@
+package circuitikztool;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+
+/**
+ * PackedComponentStore keeps very large schematics compact. Instead of an
+ * object per component (with its own strings) every field is kept in a
+ * column: packed half grid positions in long arrays, the type in a byte array
+ * and the label and latex parameters as indices into a table of distinct
+ * strings.
+ * Most components share their text with many others (every wire is
+ * "to[short]"), so the table stays small. Strings no component uses anymore
+ * are dropped from the table and their entries reused.
+ *
+ * get() builds a new component from the columns every time it is called, the
+ * component has to be written back with set() when it was changed. A
+ * component takes about 41 bytes here (including its ID), a million of them
+ * fit in well under a hundred megabytes.
+ */
+public class PackedComponentStore implements ComponentStore {
+
+    private int size = 0;
+
+    //ids of the slots and which of them were removed
+    private final ComponentIds ids;
+
+    //type of every component
+    private byte[] types;
+
+    //packed start and end of path components, non-path components keep their position in starts (see HalfGrid)
+    private long[] starts, ends;
+
+    //label and latex parameters as indices into strings, and the device id used in the latex output
+    private int[] labels, latex, deviceIDs;
+
+    //every distinct string used by a component, and the index of each of them
+    private final ArrayList<String> strings;
+    private final HashMap<String, Integer> stringIndex;
+
+    //number of labels and latex parameters using every entry of strings, and the entries nobody uses
+    private int[] stringUses = new int[16];
+    private final BitSet unusedStrings = new BitSet();
+
+    //slots changed since the last snapshot, and that snapshot
+    private final BitSet changed = new BitSet();
+    private ComponentSnapshot snapshot;
+
+    /**
+     * creates an empty store
+     *
+     * @param capacity number of components the store has room for before it
+     * has to grow
+     */
+    public PackedComponentStore(int capacity) {
+        capacity = Math.max(16, capacity);
+        types = new byte[capacity];
+        starts = new long[capacity];
+        ends = new long[capacity];
+        labels = new int[capacity];
+        latex = new int[capacity];
+        deviceIDs = new int[capacity];
+        ids = new ComponentIds(capacity);
+        strings = new ArrayList<>();
+        stringIndex = new HashMap<>();
+    }
+
+    @Override
+    public int slotCount() {
+        return size;
+    }
+
+    @Override
+    public int count() {
+        return ids.count();
+    }
+
+    @Override
+    public int removedCount() {
+        return ids.removedCount();
+    }
+
+    @Override
+    public boolean isRemoved(int slot) {
+        return ids.isRemoved(slot);
+    }
+
+    @Override
+    public long getId(int slot) {
+        checkSlot(slot);
+        return ids.getId(slot);
+    }
+
+    @Override
+    public int slotOf(long id) {
+        return ids.slotOf(id);
+    }
+
+    @Override
+    public Component get(int slot) {
+        checkSlot(slot);
+        return new Component(types[slot], starts[slot], ends[slot], strings.get(labels[slot]), strings.get(latex[slot]), deviceIDs[slot]);
+    }
+
+    @Override
+    public Rectangle2D getBounds(int slot) {
+        checkSlot(slot);
+        return Component.getBounds(types[slot], starts[slot], ends[slot]);
+    }
+
+    @Override
+    public long add(Component c) {
+        if (size == types.length) {
+            grow();
+        }
+        size++;
+        write(size - 1, c);
+        return ids.add();
+    }
+
+    @Override
+    public void set(int slot, Component c) {
+        checkSlot(slot);
+        int oldLabel = labels[slot], oldLatex = latex[slot];
+        write(slot, c);
+        release(oldLabel);
+        release(oldLatex);
+    }
+
+    /**
+     * writes a component into a slot, the strings the slot used before are
+     * left alone
+     */
+    private void write(int slot, Component c) {
+        types[slot] = (byte) c.componentType;
+        if (c.isPathComponent()) {
+            starts[slot] = c.start;
+            ends[slot] = c.end;
+        } else {
+            starts[slot] = c.position;
+            ends[slot] = 0;
+        }
+        labels[slot] = intern(c.getComponentLabel());
+        latex[slot] = intern(c.getLatexString());
+        deviceIDs[slot] = c.getDeviceID();
+        changed.set(slot);
+    }
+
+    @Override
+    public void remove(int slot) {
+        checkSlot(slot);
+        if (ids.isRemoved(slot)) {
+            return;
+        }
+        release(labels[slot]);
+        release(latex[slot]);
+        ids.remove(slot);
+        changed.set(slot);
+    }
+
+    @Override
+    public int[] compact() {
+        int[] newSlots = ids.compact();
+        int kept = 0;
+        for (int a = 0; a < size; a++) {
+            if (newSlots[a] < 0) {
+                continue;
+            }
+            types[kept] = types[a];
+            starts[kept] = starts[a];
+            ends[kept] = ends[a];
+            labels[kept] = labels[a];
+            latex[kept] = latex[a];
+            deviceIDs[kept] = deviceIDs[a];
+            kept++;
+        }
+        size = kept;
+
+        //every slot after the first removed one moved, the next snapshot starts over
+        changed.clear();
+        snapshot = null;
+        return newSlots;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        ids.clear();
+        strings.clear();
+        stringIndex.clear();
+        Arrays.fill(stringUses, 0);
+        unusedStrings.clear();
+        changed.clear();
+        snapshot = null;
+    }
+
+    @Override
+    public ComponentSnapshot snapshot() {
+        snapshot = ComponentSnapshot.update(snapshot, this, changed);
+        changed.clear();
+        return snapshot;
+    }
+
+    /**
+     * returns the index of a string in the string table, adding it if it
+     * isn't in there yet. Counts as a use of the string until it is
+     * released.
+     */
+    private int intern(String s) {
+        Integer index = stringIndex.get(s);
+        if (index == null) {
+            index = unusedStrings.nextSetBit(0);
+            if (index < 0) {
+                index = strings.size();
+                strings.add(s);
+                if (index == stringUses.length) {
+                    stringUses = Arrays.copyOf(stringUses, index * 2);
+                }
+            } else {
+                unusedStrings.clear(index);
+                strings.set(index, s);
+            }
+            stringIndex.put(s, index);
+        }
+        stringUses[index]++;
+        return index;
+    }
+
+    /**
+     * ends a use of a string in the string table, the string is dropped once
+     * nothing uses it
+     */
+    private void release(int index) {
+        if (--stringUses[index] == 0) {
+            stringIndex.remove(strings.get(index));
+            strings.set(index, null);
+            unusedStrings.set(index);
+        }
+    }
+
+    private void grow() {
+        int capacity = Math.max(16, types.length * 2);
+        types = Arrays.copyOf(types, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        ends = Arrays.copyOf(ends, capacity);
+        labels = Arrays.copyOf(labels, capacity);
+        latex = Arrays.copyOf(latex, capacity);
+        deviceIDs = Arrays.copyOf(deviceIDs, capacity);
+    }
+
+    private void checkSlot(int slot) {
+        if (slot < 0 || slot >= size) {
+            throw new IndexOutOfBoundsException("Slot: " + slot + ", Size: " + size);
+        }
+    }
+}
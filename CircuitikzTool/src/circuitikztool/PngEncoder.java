@@ -0,0 +1,160 @@
+package circuitikztool;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * PngEncoder writes an 8 bit RGB PNG image one row at a time, so images far
+ * bigger than the heap can be written as long as the rows arrive in order.
+ * Compressed data is written out in IDAT chunks of IDAT_SIZE bytes as soon as
+ * it is available.
+ */
+public class PngEncoder {
+
+    //maximum size of a single IDAT chunk
+    final static int IDAT_SIZE = 64 * 1024;
+
+    private static final byte[] SIGNATURE = {(byte) 137, 80, 78, 71, 13, 10, 26, 10};
+
+    private final DataOutputStream out;
+    private final int width, height;
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    private final DeflaterOutputStream compressed;
+
+    //filtered bytes of the current row, the first byte is the filter type
+    private final byte[] row;
+    private int rowsWritten = 0;
+
+    /**
+     * starts a new image, writes the PNG header right away
+     *
+     * @param out stream the image is written to, not closed by the encoder
+     * @param width width of the image in pixels
+     * @param height height of the image in pixels
+     * @param dpi resolution stored in the image, 0 to leave it out
+     * @throws IOException if writing to the stream fails
+     */
+    public PngEncoder(OutputStream out, int width, int height, double dpi) throws IOException {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Image size must be positive, got " + width + "x" + height);
+        }
+        this.out = new DataOutputStream(out);
+        this.width = width;
+        this.height = height;
+        row = new byte[1 + 3 * width];
+
+        this.out.write(SIGNATURE);
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream h = new DataOutputStream(header);
+        h.writeInt(width);
+        h.writeInt(height);
+        h.writeByte(8); //bit depth
+        h.writeByte(2); //color type RGB
+        h.writeByte(0); //compression
+        h.writeByte(0); //filter method
+        h.writeByte(0); //no interlacing
+        writeChunk("IHDR", header.toByteArray(), header.size());
+
+        if (dpi > 0) {
+            //physical size is stored as pixels per meter
+            int pixelsPerMeter = (int) Math.round(dpi / 0.0254);
+            ByteArrayOutputStream phys = new ByteArrayOutputStream();
+            DataOutputStream p = new DataOutputStream(phys);
+            p.writeInt(pixelsPerMeter);
+            p.writeInt(pixelsPerMeter);
+            p.writeByte(1); //unit is meters
+            writeChunk("pHYs", phys.toByteArray(), phys.size());
+        }
+
+        //everything the deflater produces is cut into IDAT chunks
+        compressed = new DeflaterOutputStream(new OutputStream() {
+            private final byte[] buffer = new byte[IDAT_SIZE];
+            private int used = 0;
+
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                while (len > 0) {
+                    int n = Math.min(len, IDAT_SIZE - used);
+                    System.arraycopy(b, off, buffer, used, n);
+                    used += n;
+                    off += n;
+                    len -= n;
+                    if (used == IDAT_SIZE) {
+                        flush();
+                    }
+                }
+            }
+
+            @Override
+            public void flush() throws IOException {
+                if (used > 0) {
+                    writeChunk("IDAT", buffer, used);
+                    used = 0;
+                }
+            }
+        }, deflater, 8192);
+    }
+
+    /**
+     * adds the next row of the image
+     *
+     * @param rgb pixels in 0xRRGGBB format
+     * @param offset index of the first pixel of the row in rgb
+     * @throws IOException if writing to the stream fails
+     */
+    public void writeRow(int[] rgb, int offset) throws IOException {
+        if (rowsWritten == height) {
+            throw new IllegalStateException("All " + height + " rows have already been written");
+        }
+        //"sub" filter, every byte is stored as the difference to the same channel of the pixel on its left
+        row[0] = 1;
+        int left = 0;
+        for (int x = 0; x < width; x++) {
+            int pixel = rgb[offset + x];
+            row[1 + 3 * x] = (byte) ((pixel >> 16) - (left >> 16));
+            row[2 + 3 * x] = (byte) ((pixel >> 8) - (left >> 8));
+            row[3 + 3 * x] = (byte) (pixel - left);
+            left = pixel;
+        }
+        compressed.write(row);
+        rowsWritten++;
+    }
+
+    /**
+     * finishes the image once every row has been written
+     *
+     * @throws IOException if writing to the stream fails
+     */
+    public void finish() throws IOException {
+        if (rowsWritten != height) {
+            throw new IllegalStateException("Only " + rowsWritten + " of " + height + " rows have been written");
+        }
+        compressed.finish();
+        compressed.flush();
+        deflater.end();
+        writeChunk("IEND", new byte[0], 0);
+        out.flush();
+    }
+
+    private void writeChunk(String type, byte[] data, int length) throws IOException {
+        byte[] typeBytes = type.getBytes("US-ASCII");
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+        out.writeInt(length);
+        out.write(typeBytes);
+        out.write(data, 0, length);
+        out.writeInt((int) crc.getValue());
+    }
+}
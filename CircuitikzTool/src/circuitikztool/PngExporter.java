@@ -0,0 +1,317 @@
+package circuitikztool;
+
+import java.awt.Graphics2D;
+import java.awt.font.FontRenderContext;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * PngExporter renders a schematic into a PNG image at a given resolution,
+ * one grid unit of the schematic is one centimeter (the circuitikz default).
+ * The image looks like the schematic window at the default zoom level, scaled
+ * up to the requested resolution, without the dot grid.
+ *
+ * The image is rendered in bands of TILE_SIZE rows. The tiles of a band are
+ * drawn in parallel and then handed to the PngEncoder row by row, so only one
+ * band is ever in memory no matter how big the image is. Nothing here needs a
+ * display, main() can be used to export saved schematics from the command
+ * line (for example on a build server).
+ */
+public class PngExporter {
+
+    //grid size the exported image is drawn at before it is scaled to the requested resolution
+    final static double BASE_GRID_SIZE = 50;
+
+    //empty space around the schematic in grid units
+    final static double MARGIN = 1;
+
+    //width and height of the tiles rendered in parallel
+    final static int TILE_SIZE = 256;
+
+    //pixels a component may reach past its bounds and still be drawn into a tile (tiles are grown by 2 pixels, the rest is room for rounding)
+    final static int TILE_MARGIN = 4;
+
+    final static double CM_PER_INCH = 2.54;
+
+    private final Component[] components;
+    private final double dpi;
+
+    //scale from the base grid size to the requested resolution
+    private final double scale;
+
+    //part of the schematic that is exported in circuitikz coordinates
+    private final Rectangle2D area;
+    private final int width, height;
+
+    //area every component paints into (symbol and label) in circuitikz coordinates
+    private final double[] minX, minY, maxX, maxY;
+
+    //components reaching into every band of TILE_SIZE rows, in drawing order
+    private final int[][] bands;
+
+    /**
+     * prepares an export of the given components
+     *
+     * @param components components of the schematic, not modified
+     * @param dpi resolution of the image in pixels per inch
+     */
+    public PngExporter(Component[] components, double dpi) {
+        if (dpi <= 0) {
+            throw new IllegalArgumentException("Resolution must be positive, got " + dpi);
+        }
+        this.components = components;
+        this.dpi = dpi;
+        scale = dpi / CM_PER_INCH / BASE_GRID_SIZE;
+
+        //labels are measured the same way they will be drawn, at the base grid size with the export scale applied
+        BufferedImage probe = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = probe.createGraphics();
+        CircuitMaker.applyRenderingHints(g, false);
+        g.scale(scale, scale);
+        FontRenderContext labelContext = g.getFontRenderContext();
+        g.dispose();
+
+        minX = new double[components.length];
+        minY = new double[components.length];
+        maxX = new double[components.length];
+        maxY = new double[components.length];
+        Rectangle2D bounds = null;
+        for (int a = 0; a < components.length; a++) {
+            Rectangle2D b = (Rectangle2D) components[a].getBounds().clone();
+            b.add(components[a].getLabelBounds(labelContext, BASE_GRID_SIZE));
+            minX[a] = b.getMinX();
+            minY[a] = b.getMinY();
+            maxX[a] = b.getMaxX();
+            maxY[a] = b.getMaxY();
+            if (bounds == null) {
+                bounds = b;
+            } else {
+                bounds.add(b);
+            }
+        }
+        if (bounds == null) {
+            bounds = new Rectangle2D.Double(0, 0, 0, 0);
+        }
+        area = new Rectangle2D.Double(bounds.getX() - MARGIN, bounds.getY() - MARGIN, bounds.getWidth() + 2 * MARGIN, bounds.getHeight() + 2 * MARGIN);
+        width = (int) Math.ceil(area.getWidth() * BASE_GRID_SIZE * scale);
+        height = (int) Math.ceil(area.getHeight() * BASE_GRID_SIZE * scale);
+
+        //every tile only looks at the components of its band and column, see write()
+        int[] all = new int[components.length];
+        for (int a = 0; a < all.length; a++) {
+            all[a] = a;
+        }
+        bands = split(all, minY, maxY, area.getY(), (height + TILE_SIZE - 1) / TILE_SIZE);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * renders the image and writes it to the given stream
+     *
+     * @param out stream the PNG is written to, not closed
+     * @throws IOException if writing fails
+     */
+    public void write(OutputStream out) throws IOException {
+        PngEncoder encoder = new PngEncoder(out, width, height, dpi);
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            int[] band = new int[width * TILE_SIZE];
+            for (int top = 0; top < height; top += TILE_SIZE) {
+                final int bandTop = top;
+                final int bandHeight = Math.min(TILE_SIZE, height - top);
+                int[][] columns = split(bands[top / TILE_SIZE], minX, maxX, area.getX(), (width + TILE_SIZE - 1) / TILE_SIZE);
+
+                //every tile of the band is rendered on its own
+                List<Callable<BufferedImage>> tiles = new ArrayList<>();
+                for (int left = 0; left < width; left += TILE_SIZE) {
+                    final int[] tileComponents = columns[left / TILE_SIZE];
+                    final int tileLeft = left;
+                    final int tileWidth = Math.min(TILE_SIZE, width - left);
+                    tiles.add(new Callable<BufferedImage>() {
+                        @Override
+                        public BufferedImage call() {
+                            return renderTile(tileComponents, tileLeft, bandTop, tileWidth, bandHeight);
+                        }
+                    });
+                }
+                List<Future<BufferedImage>> rendered = pool.invokeAll(tiles);
+
+                //copy the tiles next to each other and hand the band to the encoder row by row
+                for (int a = 0; a < rendered.size(); a++) {
+                    BufferedImage tile = rendered.get(a).get();
+                    int[] pixels = ((DataBufferInt) tile.getRaster().getDataBuffer()).getData();
+                    for (int y = 0; y < bandHeight; y++) {
+                        System.arraycopy(pixels, y * tile.getWidth(), band, y * width + a * TILE_SIZE, tile.getWidth());
+                    }
+                }
+                for (int y = 0; y < bandHeight; y++) {
+                    encoder.writeRow(band, y * width);
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Export was interrupted", ex);
+        } catch (ExecutionException ex) {
+            throw new IOException("Rendering a tile failed", ex.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        encoder.finish();
+    }
+
+    /**
+     * sorts components into the parts of TILE_SIZE pixels of the image their
+     * painted area reaches into, along one axis
+     *
+     * @param items indices of the components to sort, in drawing order
+     * @param min lowest coordinate every component paints at, along the axis
+     * @param max highest coordinate every component paints at
+     * @param origin coordinate of the first pixel of the image along the axis
+     * @param parts number of parts the axis is split into
+     * @return indices of the components reaching into every part, in drawing
+     * order
+     */
+    private int[][] split(int[] items, double[] min, double[] max, double origin, int parts) {
+        double pixels = BASE_GRID_SIZE * scale;
+        int[] first = new int[items.length];
+        int[] last = new int[items.length];
+        int[] counts = new int[parts];
+        for (int a = 0; a < items.length; a++) {
+            first[a] = Math.max(0, (int) Math.floor(((min[items[a]] - origin) * pixels - TILE_MARGIN) / TILE_SIZE));
+            last[a] = Math.min(parts - 1, (int) Math.floor(((max[items[a]] - origin) * pixels + TILE_MARGIN) / TILE_SIZE));
+            for (int b = first[a]; b <= last[a]; b++) {
+                counts[b]++;
+            }
+        }
+        int[][] result = new int[parts][];
+        for (int b = 0; b < parts; b++) {
+            result[b] = new int[counts[b]];
+            counts[b] = 0;
+        }
+        for (int a = 0; a < items.length; a++) {
+            for (int b = first[a]; b <= last[a]; b++) {
+                result[b][counts[b]++] = items[a];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * renders the given part of the image
+     *
+     * @param tileComponents indices of the components that may reach into the
+     * tile, in drawing order
+     * @param left x position of the tile in the image
+     * @param top y position of the tile in the image
+     * @param tileWidth width of the tile in pixels
+     * @param tileHeight height of the tile in pixels
+     * @return rendered tile
+     */
+    private BufferedImage renderTile(int[] tileComponents, int left, int top, int tileWidth, int tileHeight) {
+        BufferedImage tile = new BufferedImage(tileWidth, tileHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = tile.createGraphics();
+        CircuitMaker.applyRenderingHints(g, false);
+        g.setColor(Preferences.backgroundColor);
+        g.fillRect(0, 0, tileWidth, tileHeight);
+
+        //from here on everything is drawn like the schematic window at the base grid size
+        g.translate(-left, -top);
+        g.scale(scale, scale);
+        double pixels = BASE_GRID_SIZE * scale;
+        double margin = 2 / pixels;
+        Rectangle2D tileArea = new Rectangle2D.Double(area.getX() + left / pixels - margin, area.getY() + top / pixels - margin,
+                tileWidth / pixels + 2 * margin, tileHeight / pixels + 2 * margin);
+        Point2D offset = new Point2D.Double(-area.getX(), -area.getY());
+        FontRenderContext labelContext = g.getFontRenderContext();
+
+        //symbols first and labels on top, same as the schematic window
+        boolean[] labelVisible = new boolean[tileComponents.length];
+        for (int a = 0; a < tileComponents.length; a++) {
+            Component c = components[tileComponents[a]];
+            labelVisible[a] = CircuitMaker.touches(tileArea, c.getLabelBounds(labelContext, BASE_GRID_SIZE));
+            if (labelVisible[a] || CircuitMaker.touches(tileArea, c.getBounds())) {
+                c.paintSymbol(g, BASE_GRID_SIZE, offset, false);
+            }
+        }
+        for (int a = 0; a < tileComponents.length; a++) {
+            if (labelVisible[a]) {
+                components[tileComponents[a]].paintLabel(g, BASE_GRID_SIZE, offset, false);
+            }
+        }
+        g.dispose();
+        return tile;
+    }
+
+    /**
+     * exports a schematic to a PNG file
+     *
+     * @param components components of the schematic
+     * @param dpi resolution in pixels per inch
+     * @param file file to write
+     * @throws IOException if writing fails
+     */
+    public static void export(Component[] components, double dpi, File file) throws IOException {
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+        try {
+            new PngExporter(components, dpi).write(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * exports a saved schematic (.ikz file) without opening the user
+     * interface.
+     *
+     * usage: PngExporter input.ikz output.png [dpi]
+     *
+     * @param args input file, output file and optionally the resolution
+     * (defaults to 300 dpi)
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("usage: PngExporter input.ikz output.png [dpi]");
+            System.exit(1);
+        }
+        //nothing is shown on screen, this lets the export run on machines without a display
+        if (System.getProperty("java.awt.headless") == null) {
+            System.setProperty("java.awt.headless", "true");
+        }
+        try {
+            double dpi = args.length > 2 ? Double.parseDouble(args[2]) : 300;
+            String[] lines = new String(Files.readAllBytes(new File(args[0]).toPath())).split("\n");
+            Component.resetStatics();
+            List<Component> components = new ArrayList<>();
+            for (String line : lines) {
+                if (!line.trim().isEmpty()) {
+                    components.add(Component.getComponentFromXML(line));
+                }
+            }
+            export(components.toArray(new Component[components.size()]), dpi, new File(args[1]));
+        } catch (IOException | IllegalArgumentException ex) {
+            System.err.println("Export failed: " + ex.getMessage());
+            System.exit(1);
+        }
+    }
+}
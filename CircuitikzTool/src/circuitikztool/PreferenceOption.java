@@ -21,6 +21,7 @@ public class preferenceOption {
     public preferenceOption(String name, String value, int type) {
         this.name = name;
         this.value = value;
+        this.type = type;
     }
 
     @Override
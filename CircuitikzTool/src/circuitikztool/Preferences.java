@@ -14,7 +14,10 @@ import java.util.logging.Logger;
 public class Preferences {
 
     private static preferenceOption[] options = {
-        new preferenceOption("Use Dark Theme", "false", preferenceOption.BOOLEAN)
+        new preferenceOption("Use Dark Theme", "false", preferenceOption.BOOLEAN),
+        new preferenceOption("Antialiasing", "true", preferenceOption.BOOLEAN),
+        new preferenceOption("Fast Rendering While Interacting", "true", preferenceOption.BOOLEAN),
+        new preferenceOption("Interaction Idle Timeout (ms)", "250", preferenceOption.INTEGER)
     };
 
     //basically apply changes
@@ -23,6 +26,7 @@ public class Preferences {
             backgroundColor = new Color((float) .14, (float) .14, (float) .21);
             componentColor = Color.WHITE;
             gridColor = Color.darkGray;
+            hoverColor = new Color(120, 170, 255, 110);
             CircuitikzTool.ui.getContentPane().setBackground(darkThemeBackground);
             themeBackgroundColor = darkThemeBackground;
             themeText = darkThemeText;
@@ -33,11 +37,20 @@ public class Preferences {
             componentColor = Color.BLACK;
             selectedColor = Color.blue;
             gridColor = Color.GRAY;
+            hoverColor = new Color(0, 110, 255, 80);
             themeBackgroundColor = lightThemeBackground;
             themeText = lightThemeText;
             themeAccent = lightThemeAccent;
         }
+        antialiasing = getPreference("Antialiasing").equals("true");
+        fastInteraction = getPreference("Fast Rendering While Interacting").equals("true");
+        try {
+            interactionIdleTimeout = Math.max(0, Integer.parseInt(getPreference("Interaction Idle Timeout (ms)")));
+        } catch (NumberFormatException e) {
+            interactionIdleTimeout = 250;
+        }
         CircuitikzTool.ui.updateTheme();
+        CircuitikzTool.ui.repaintCircuitMaker();
     }
 
     public static Color themeBackgroundColor, themeAccent, themeText;
@@ -68,11 +81,35 @@ public class Preferences {
      */
     public static Color selectedColor = Color.blue;
 
+    /**
+     * color of the highlight around the component under the cursor, drawn on
+     * top of the schematic so it should be translucent
+     */
+    public static Color hoverColor = new Color(0, 110, 255, 80);
+
     /**
      * color of the grid dots that are drawn in the circuitmaker window
      */
     public static Color gridColor = Color.GRAY;
 
+    /**
+     * whether the schematic is drawn with antialiasing and fractional font
+     * metrics once the user stops interacting with it
+     */
+    public static boolean antialiasing = true;
+
+    /**
+     * whether the schematic is drawn without antialiasing, labels and
+     * detailed symbols while the user is panning, zooming or dragging
+     */
+    public static boolean fastInteraction = true;
+
+    /**
+     * how long (in milliseconds) the user has to stop interacting before the
+     * schematic is drawn at full quality again
+     */
+    public static int interactionIdleTimeout = 250;
+
     public static preferenceOption[] getPreferences() {
         return options;
     }
@@ -115,8 +152,17 @@ public class Preferences {
             String[] splitData = data.split("\n");
 
             //now we track down each option and see how it's been configured
-            for (int a = 0; a < options.length; a++) {
-                options[a] = preferenceOption.parsePreferenceOption(splitData[a]);
+            //options are matched by name, so files written by older versions just keep the defaults for newer options
+            for (int a = 0; a < splitData.length; a++) {
+                if (!splitData[a].contains("=") || !splitData[a].contains(";")) {
+                    continue;
+                }
+                preferenceOption saved = preferenceOption.parsePreferenceOption(splitData[a]);
+                for (int b = 0; b < options.length; b++) {
+                    if (options[b].name.equals(saved.name)) {
+                        options[b].value = saved.value;
+                    }
+                }
             }
 
         } catch (IOException ex) {
@@ -7,6 +7,9 @@ package circuitikztool;
 
 import java.util.ArrayList;
 import javax.swing.JCheckBox;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JTextField;
 
 /**
  *
@@ -16,6 +19,9 @@ public class preferencesConfig extends javax.swing.JDialog {
 
     ArrayList<JCheckBox> checkBoxes = new ArrayList(0);
 
+    //text fields of integer options, the name of every field is the name of its option
+    ArrayList<JTextField> numberFields = new ArrayList<>();
+
     /**
      * Creates new form preferencesConfig
      */
@@ -30,20 +36,35 @@ public class preferencesConfig extends javax.swing.JDialog {
         panel.setBackground(Preferences.themeBackgroundColor);
 
         panel.setLayout(new java.awt.GridLayout(Preferences.getPreferences().length, 1));
-        setSize(200, 30 * Preferences.getPreferences().length + 100);
+        setSize(300, 30 * Preferences.getPreferences().length + 100);
 
         for (int a = 0; a < Preferences.getPreferences().length; a++) {
 
             if (Preferences.getPreferences()[a].type == preferenceOption.BOOLEAN) {
-                checkBoxes.add(new JCheckBox(Preferences.getPreferences()[a].name, Preferences.getPreferences()[a].value.equals("true")));
-//                this.add(checkBoxes.get(a));
+                JCheckBox checkBox = new JCheckBox(Preferences.getPreferences()[a].name, Preferences.getPreferences()[a].value.equals("true"));
+                checkBoxes.add(checkBox);
+//                this.add(checkBox);
                 System.out.println(Preferences.getPreferences()[a].value);
 
                 System.out.println("creating checkbox for " + Preferences.getPreferences()[a].name + "(" + Preferences.getPreferences()[a].toString() + ")");
-                panel.add(checkBoxes.get(a));
-                checkBoxes.get(a).setForeground(Preferences.themeText);
-                checkBoxes.get(a).setBackground(Preferences.themeBackgroundColor);
-                checkBoxes.get(a).setVisible(true);
+                panel.add(checkBox);
+                checkBox.setForeground(Preferences.themeText);
+                checkBox.setBackground(Preferences.themeBackgroundColor);
+                checkBox.setVisible(true);
+            } else if (Preferences.getPreferences()[a].type == preferenceOption.INTEGER) {
+                //integer options get a label and a text field next to each other
+                JPanel row = new JPanel(new java.awt.BorderLayout(5, 0));
+                row.setBackground(Preferences.themeBackgroundColor);
+                JLabel label = new JLabel(Preferences.getPreferences()[a].name);
+                label.setForeground(Preferences.themeText);
+                JTextField field = new JTextField(Preferences.getPreferences()[a].value, 5);
+                field.setName(Preferences.getPreferences()[a].name);
+                field.setBackground(Preferences.themeAccent);
+                field.setForeground(Preferences.themeText);
+                numberFields.add(field);
+                row.add(label, java.awt.BorderLayout.CENTER);
+                row.add(field, java.awt.BorderLayout.EAST);
+                panel.add(row);
             }
 
         }
@@ -105,9 +126,16 @@ public class preferencesConfig extends javax.swing.JDialog {
     }//GEN-LAST:event_applyActionPerformed
 
     private void doClose() {
-        for (int a = 0; a < Preferences.getPreferences().length; a++) {
+        for (int a = 0; a < checkBoxes.size(); a++) {
             Preferences.setPreference(checkBoxes.get(a).getText(), (checkBoxes.get(a).isSelected()) ? "true" : "false");
         }
+        for (int a = 0; a < numberFields.size(); a++) {
+            //anything that isn't a number keeps the old value
+            try {
+                Preferences.setPreference(numberFields.get(a).getName(), Integer.toString(Integer.parseInt(numberFields.get(a).getText().trim())));
+            } catch (NumberFormatException e) {
+            }
+        }
         Preferences.exportPreferences();
         Preferences.ConfigPrefrences();
         setVisible(false);
@@ -0,0 +1,78 @@
+package circuitikztool;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+/**
+ * RepaintScheduler replaces the old fixed rate repaint loop that used to run
+ * in CircuitikzTool.main. Anything that changes what the schematic window
+ * shows (model edits, mouse input, zooming, preference changes) asks for a
+ * frame through requestRepaint(). Requests that arrive while a frame is
+ * already pending are merged into that frame, frames are spaced at least
+ * MIN_FRAME_INTERVAL milliseconds apart and when nobody asks for a frame the
+ * scheduler does no work at all.
+ */
+public class RepaintScheduler {
+
+    //minimum time between two frames in milliseconds, this caps redraws at roughly 60 frames per second while the user is interacting
+    final static int MIN_FRAME_INTERVAL = 16;
+
+    //the panel we are scheduling frames for
+    private final JComponent target;
+
+    //one shot timer, while it is running a frame is pending and further requests are coalesced into it
+    private final Timer timer;
+
+    //System.nanoTime() of the last frame we handed to swing
+    private long lastFrameTime = 0;
+
+    /**
+     * creates a scheduler for the given panel, no frames are scheduled until
+     * requestRepaint() is called
+     *
+     * @param target panel to be repainted
+     */
+    public RepaintScheduler(JComponent target) {
+        this.target = target;
+        timer = new Timer(MIN_FRAME_INTERVAL, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                fireFrame();
+            }
+        });
+        timer.setRepeats(false);
+        timer.setCoalesce(true);
+    }
+
+    /**
+     * requests a new frame. if a frame is already pending this does nothing,
+     * otherwise a frame is scheduled as soon as the frame rate cap allows it.
+     * safe to call from any thread.
+     */
+    public void requestRepaint() {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    requestRepaint();
+                }
+            });
+            return;
+        }
+        if (timer.isRunning()) {
+            //a frame is already on its way, this request will be served by it
+            return;
+        }
+        long elapsed = (System.nanoTime() - lastFrameTime) / 1000000;
+        timer.setInitialDelay((int) Math.max(0, MIN_FRAME_INTERVAL - elapsed));
+        timer.start();
+    }
+
+    private void fireFrame() {
+        lastFrameTime = System.nanoTime();
+        target.repaint();
+    }
+}
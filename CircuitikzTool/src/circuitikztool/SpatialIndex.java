@@ -0,0 +1,315 @@
+package circuitikztool;
+
+import java.awt.geom.Line2D;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+
+/**
+ * SpatialIndex finds placed components by position without looking at every
+ * component. The schematic is divided into square cells of CELL_SIZE grid
+ * units, every component is listed in each cell its symbol touches. Only
+ * cells that contain something are stored, so the index doesn't care how far
+ * apart components are.
+ *
+ * Components are referred to by their slot in the ComponentStore, the index
+ * doesn't keep component objects around. It is updated one component at a
+ * time when components are added, changed, moved or removed. When the store
+ * is compacted remap() moves every slot to the new slot of its component. It
+ * only has to be rebuilt when a whole schematic is loaded.
+ */
+public class SpatialIndex {
+
+    //width and height of a cell in circuitikz coordinates
+    final static double CELL_SIZE = 4;
+
+    //slots of the components in every non-empty cell, the key is the packed cell position (see key())
+    private final HashMap<Long, Cell> cells = new HashMap<>();
+
+    //number of components in the index
+    private int count = 0;
+
+    //range of cells that has ever held something, searches never go further than this
+    private int minCellX = Integer.MAX_VALUE, minCellY = Integer.MAX_VALUE;
+    private int maxCellX = Integer.MIN_VALUE, maxCellY = Integer.MIN_VALUE;
+
+    /**
+     * component slots of a single cell, in no particular order
+     */
+    private static class Cell {
+
+        int[] items = new int[4];
+        int size = 0;
+
+        void add(int index) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = index;
+        }
+
+        void remove(int index) {
+            for (int a = 0; a < size; a++) {
+                if (items[a] == index) {
+                    items[a] = items[--size];
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * adds a component to the index
+     *
+     * @param index slot of the component in the store
+     * @param bounds bounds of the component symbol
+     */
+    public void add(int index, Rectangle2D bounds) {
+        int x0 = cell(bounds.getMinX()), x1 = cell(bounds.getMaxX());
+        int y0 = cell(bounds.getMinY()), y1 = cell(bounds.getMaxY());
+        for (int x = x0; x <= x1; x++) {
+            for (int y = y0; y <= y1; y++) {
+                Cell cell = cells.get(key(x, y));
+                if (cell == null) {
+                    cell = new Cell();
+                    cells.put(key(x, y), cell);
+                }
+                cell.add(index);
+            }
+        }
+        count++;
+        minCellX = Math.min(minCellX, x0);
+        minCellY = Math.min(minCellY, y0);
+        maxCellX = Math.max(maxCellX, x1);
+        maxCellY = Math.max(maxCellY, y1);
+    }
+
+    /**
+     * removes a component from the index, it has to be removed before it is
+     * moved, changed or removed from the store
+     *
+     * @param index slot of the component in the store
+     * @param bounds bounds the component was added with
+     */
+    public void remove(int index, Rectangle2D bounds) {
+        for (int x = cell(bounds.getMinX()); x <= cell(bounds.getMaxX()); x++) {
+            for (int y = cell(bounds.getMinY()); y <= cell(bounds.getMaxY()); y++) {
+                Cell cell = cells.get(key(x, y));
+                if (cell == null) {
+                    continue;
+                }
+                cell.remove(index);
+                if (cell.size == 0) {
+                    cells.remove(key(x, y));
+                }
+            }
+        }
+        count--;
+    }
+
+    /**
+     * moves every slot to where its component ended up after the store was
+     * compacted, slots of removed components are dropped
+     *
+     * @param newIndices new slot for every old slot, -1 for removed ones
+     */
+    public void remap(int[] newIndices) {
+        Iterator<Cell> it = cells.values().iterator();
+        while (it.hasNext()) {
+            Cell cell = it.next();
+            int kept = 0;
+            for (int a = 0; a < cell.size; a++) {
+                int index = newIndices[cell.items[a]];
+                if (index >= 0) {
+                    cell.items[kept++] = index;
+                }
+            }
+            cell.size = kept;
+            if (kept == 0) {
+                it.remove();
+            }
+        }
+        count = 0;
+        for (int index : newIndices) {
+            if (index >= 0) {
+                count++;
+            }
+        }
+    }
+
+    /**
+     * replaces the index with the components of a store
+     *
+     * @param components all placed components
+     */
+    public void rebuild(ComponentStore components) {
+        clear();
+        for (int a = 0; a < components.slotCount(); a++) {
+            if (!components.isRemoved(a)) {
+                add(a, components.getBounds(a));
+            }
+        }
+    }
+
+    /**
+     * removes everything from the index
+     */
+    public void clear() {
+        cells.clear();
+        count = 0;
+        minCellX = minCellY = Integer.MAX_VALUE;
+        maxCellX = maxCellY = Integer.MIN_VALUE;
+    }
+
+    /**
+     * finds the component closest to a point. Wires and other path components
+     * are measured to the nearest point of their line, everything else to
+     * the nearest point of its symbol (0 if the point is on the symbol).
+     *
+     * @param p point in circuitikz coordinates
+     * @param components store the indexed components are in
+     * @return slot of the closest component, -1 if the index is empty
+     */
+    public int nearest(Point2D p, ComponentStore components) {
+        if (count == 0) {
+            return -1;
+        }
+        int cx = cell(p.getX()), cy = cell(p.getY());
+        int best = -1;
+        double bestDistance = Double.MAX_VALUE;
+        searchBest = -1;
+
+        //search rings of cells around the point, a ring can only hold something closer than best if its inner edge is closer
+        //rings start at the first one that reaches the occupied cells, so points far away from the schematic don't walk empty rings
+        int firstRing = Math.max(Math.max(minCellX - cx, cx - maxCellX), Math.max(minCellY - cy, cy - maxCellY));
+        for (int ring = Math.max(0, firstRing);; ring++) {
+            double ringDistance = (ring - 1) * CELL_SIZE;
+            if (best >= 0 && ringDistance > bestDistance) {
+                break;
+            }
+            if (cx - ring < minCellX && cx + ring > maxCellX && cy - ring < minCellY && cy + ring > maxCellY) {
+                break;
+            }
+            //top and bottom rows of the ring, then the left and right columns without their corners, limited to the occupied range
+            int fromX = Math.max(cx - ring, minCellX), toX = Math.min(cx + ring, maxCellX);
+            int fromY = Math.max(cy - ring + 1, minCellY), toY = Math.min(cy + ring - 1, maxCellY);
+            for (int x = fromX; x <= toX; x++) {
+                bestDistance = search(x, cy - ring, p, bestDistance, components);
+                if (ring > 0) {
+                    bestDistance = search(x, cy + ring, p, bestDistance, components);
+                }
+            }
+            for (int y = fromY; y <= toY && ring > 0; y++) {
+                bestDistance = search(cx - ring, y, p, bestDistance, components);
+                bestDistance = search(cx + ring, y, p, bestDistance, components);
+            }
+            if (searchBest >= 0) {
+                best = searchBest;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * finds every component whose symbol lies completely inside of an area
+     *
+     * @param area area in circuitikz coordinates
+     * @param components store the indexed components are in
+     * @return slots of the components inside of the area in ascending order
+     */
+    public int[] inside(Rectangle2D area, ComponentStore components) {
+        Cell found = new Cell();
+        int x0 = Math.max(cell(area.getMinX()), minCellX), x1 = Math.min(cell(area.getMaxX()), maxCellX);
+        int y0 = Math.max(cell(area.getMinY()), minCellY), y1 = Math.min(cell(area.getMaxY()), maxCellY);
+        if (x0 <= x1 && y0 <= y1) {
+            //a component is listed in every cell it touches, it is only reported by the cell holding its top left corner
+            if ((long) (x1 - x0 + 1) * (y1 - y0 + 1) > cells.size()) {
+                //the area covers more cells than there are occupied ones, cheaper to look at each of those
+                for (Long key : cells.keySet()) {
+                    collectInside((int) (key >> 32), (int) (long) key, area, components, found);
+                }
+            } else {
+                for (int x = x0; x <= x1; x++) {
+                    for (int y = y0; y <= y1; y++) {
+                        collectInside(x, y, area, components, found);
+                    }
+                }
+            }
+        }
+        int[] indices = Arrays.copyOf(found.items, found.size);
+        Arrays.sort(indices);
+        return indices;
+    }
+
+    private void collectInside(int x, int y, Rectangle2D area, ComponentStore components, Cell found) {
+        Cell cell = cells.get(key(x, y));
+        if (cell == null) {
+            return;
+        }
+        for (int a = 0; a < cell.size; a++) {
+            Rectangle2D b = components.getBounds(cell.items[a]);
+            if (cell(b.getMinX()) == x && cell(b.getMinY()) == y
+                    && area.getMinX() <= b.getMinX() && b.getMaxX() <= area.getMaxX()
+                    && area.getMinY() <= b.getMinY() && b.getMaxY() <= area.getMaxY()) {
+                found.add(cell.items[a]);
+            }
+        }
+    }
+
+    //closest component found by search(), only valid during nearest()
+    private int searchBest;
+
+    /**
+     * checks the components of a single cell, cells that are further away
+     * than the closest component found so far are skipped without looking at
+     * their components
+     *
+     * @return distance of the closest component found so far
+     */
+    private double search(int x, int y, Point2D p, double bestDistance, ComponentStore components) {
+        double dx = Math.max(0, Math.max(x * CELL_SIZE - p.getX(), p.getX() - (x + 1) * CELL_SIZE));
+        double dy = Math.max(0, Math.max(y * CELL_SIZE - p.getY(), p.getY() - (y + 1) * CELL_SIZE));
+        if (dx * dx + dy * dy > bestDistance * bestDistance) {
+            return bestDistance;
+        }
+        Cell cell = cells.get(key(x, y));
+        if (cell == null) {
+            return bestDistance;
+        }
+        for (int a = 0; a < cell.size; a++) {
+            double d = distance(components.get(cell.items[a]), p);
+            if (d < bestDistance) {
+                bestDistance = d;
+                searchBest = cell.items[a];
+            }
+        }
+        return bestDistance;
+    }
+
+    /**
+     * distance from a point to a component, see nearest()
+     *
+     * @param c component
+     * @param p point in circuitikz coordinates
+     * @return distance in grid units
+     */
+    static double distance(Component c, Point2D p) {
+        if (c.isPathComponent()) {
+            return Line2D.ptSegDist(HalfGrid.x(c.start), HalfGrid.y(c.start), HalfGrid.x(c.end), HalfGrid.y(c.end), p.getX(), p.getY());
+        }
+        Rectangle2D b = c.getBounds();
+        double dx = Math.max(0, Math.max(b.getMinX() - p.getX(), p.getX() - b.getMaxX()));
+        double dy = Math.max(0, Math.max(b.getMinY() - p.getY(), p.getY() - b.getMaxY()));
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    static int cell(double coordinate) {
+        return (int) Math.floor(coordinate / CELL_SIZE);
+    }
+
+    static long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+}
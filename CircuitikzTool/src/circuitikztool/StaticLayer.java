@@ -0,0 +1,259 @@
+package circuitikztool;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.VolatileImage;
+import javax.swing.JComponent;
+
+/**
+ * StaticLayer keeps the part of the CircuitMaker window that rarely changes
+ * (background, grid, origin and all placed components) in an offscreen
+ * VolatileImage. Every frame the image is simply copied to the screen, it is
+ * only redrawn when invalidate() is called after a model change or when the
+ * zoom, the position of the origin, the window size or the theme colors are
+ * different from the last time it was drawn. Everything that moves with the
+ * mouse is drawn on top of it by the CircuitMaker as an overlay.
+ *
+ * When only the origin moved (the user is panning) the old contents are
+ * shifted with copyArea and only the strips of newly exposed pixels are
+ * drawn, so panning costs about as much as the distance moved. Changes to
+ * single components only redraw the area they cover (see invalidate(Rectangle2D)).
+ * While the user is zooming the old contents can be shown scaled to the new
+ * zoom level (see paintPreview()).
+ */
+public class StaticLayer {
+
+    /**
+     * whatever draws the contents of the layer, called only when the layer
+     * needs to be redrawn
+     */
+    public interface Content {
+
+        /**
+         * draws the contents of the layer. the graphics object may be clipped
+         * to a part of the layer, in which case drawing anything outside of
+         * the clip can be skipped.
+         *
+         * @param g2d graphics object of the offscreen image
+         */
+        void paintContent(Graphics2D g2d);
+    }
+
+    private final JComponent owner;
+    private final Content content;
+
+    private VolatileImage image;
+    private boolean valid = false;
+
+    //distance (in pixels) the origin moved since the image was last drawn, only used while the image is valid
+    private int shiftX = 0, shiftY = 0;
+
+    //part of the image that has to be redrawn (in pixels, measured from the origin), null if nothing does
+    private Rectangle2D dirty;
+
+    //view parameters the current image was drawn with
+    private double keyGridSize;
+    private double keyOriginX, keyOriginY;
+    private Color keyBackground, keyComponent, keyGrid, keySelected;
+
+    /**
+     * creates a static layer for the given panel
+     *
+     * @param owner panel the layer is drawn onto, used to create compatible
+     * images
+     * @param content draws the contents of the layer
+     */
+    public StaticLayer(JComponent owner, Content content) {
+        this.owner = owner;
+        this.content = content;
+    }
+
+    /**
+     * marks the layer as out of date, it will be redrawn on the next frame
+     */
+    public void invalidate() {
+        valid = false;
+        dirty = null;
+    }
+
+    /**
+     * marks part of the layer as out of date, only that part will be redrawn
+     * on the next frame. the area is measured from the origin so it stays
+     * correct if the user pans before the next frame.
+     *
+     * @param area area to redraw in pixels, relative to the origin
+     */
+    public void invalidate(Rectangle2D area) {
+        if (!valid) {
+            return;
+        }
+        if (dirty == null) {
+            dirty = new Rectangle2D.Double(area.getX(), area.getY(), area.getWidth(), area.getHeight());
+        } else {
+            dirty.add(area);
+        }
+    }
+
+    /**
+     * copies the layer onto the given graphics object, redrawing it first if
+     * it is out of date.
+     *
+     * @param g2d graphics object to be drawn onto
+     * @param gridSize current size of the grid
+     * @param originX x position of the origin in pixels
+     * @param originY y position of the origin in pixels
+     */
+    public void paint(Graphics2D g2d, double gridSize, double originX, double originY) {
+        int width = owner.getWidth();
+        int height = owner.getHeight();
+        GraphicsConfiguration gc = owner.getGraphicsConfiguration();
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        if (gc == null) {
+            //not on screen (yet), nothing to cache against so just draw straight away
+            content.paintContent(g2d);
+            return;
+        }
+
+        //when nothing but the origin moved by whole pixels the old contents can be shifted instead of redrawn
+        double moveX = originX - keyOriginX;
+        double moveY = originY - keyOriginY;
+        if (valid && (moveX != 0 || moveY != 0)
+                && moveX == Math.rint(moveX) && moveY == Math.rint(moveY)
+                && Math.abs(moveX) < width && Math.abs(moveY) < height
+                && keyGridSize == gridSize
+                && keyBackground == Preferences.backgroundColor
+                && keyComponent == Preferences.componentColor
+                && keyGrid == Preferences.gridColor
+                && keySelected == Preferences.selectedColor) {
+            shiftX += (int) moveX;
+            shiftY += (int) moveY;
+            keyOriginX = originX;
+            keyOriginY = originY;
+        } else if (keyGridSize != gridSize
+                || keyOriginX != originX
+                || keyOriginY != originY
+                || keyBackground != Preferences.backgroundColor
+                || keyComponent != Preferences.componentColor
+                || keyGrid != Preferences.gridColor
+                || keySelected != Preferences.selectedColor) {
+            keyGridSize = gridSize;
+            keyOriginX = originX;
+            keyOriginY = originY;
+            keyBackground = Preferences.backgroundColor;
+            keyComponent = Preferences.componentColor;
+            keyGrid = Preferences.gridColor;
+            keySelected = Preferences.selectedColor;
+            valid = false;
+        }
+
+        do {
+            if (image == null || image.getWidth() != width || image.getHeight() != height) {
+                image = owner.createVolatileImage(width, height);
+                valid = false;
+                if (image == null) {
+                    //panel isn't displayable, draw without caching
+                    content.paintContent(g2d);
+                    return;
+                }
+            }
+            int status = image.validate(gc);
+            if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+                image = owner.createVolatileImage(width, height);
+                valid = false;
+            } else if (status == VolatileImage.IMAGE_RESTORED) {
+                valid = false;
+            }
+
+            if (!valid) {
+                Graphics2D ig = image.createGraphics();
+                content.paintContent(ig);
+                ig.dispose();
+                valid = true;
+            } else {
+                if (shiftX != 0 || shiftY != 0) {
+                    shift(width, height);
+                }
+                if (dirty != null) {
+                    //the clip is rounded outwards so partly covered pixels are redrawn too
+                    int left = (int) Math.floor(dirty.getMinX() + originX);
+                    int top = (int) Math.floor(dirty.getMinY() + originY);
+                    int right = (int) Math.ceil(dirty.getMaxX() + originX);
+                    int bottom = (int) Math.ceil(dirty.getMaxY() + originY);
+                    paintClipped(left, top, right - left, bottom - top);
+                }
+            }
+            shiftX = 0;
+            shiftY = 0;
+            dirty = null;
+            g2d.drawImage(image, 0, 0, null);
+
+            if (image.contentsLost()) {
+                valid = false;
+            }
+        } while (!valid);
+    }
+
+    /**
+     * draws the last drawn contents of the layer scaled and moved to a new
+     * zoom level instead of drawing the layer again. used while the user is
+     * zooming, parts of the window the old contents don't cover are filled
+     * with the background color.
+     *
+     * @param g2d graphics object to be drawn onto
+     * @param gridSize current size of the grid
+     * @param originX x position of the origin in pixels
+     * @param originY y position of the origin in pixels
+     * @return false if there is nothing to scale, the layer has to be drawn
+     * with paint() then
+     */
+    public boolean paintPreview(Graphics2D g2d, double gridSize, double originX, double originY) {
+        GraphicsConfiguration gc = owner.getGraphicsConfiguration();
+        if (image == null || !valid || gc == null || image.validate(gc) != VolatileImage.IMAGE_OK) {
+            return false;
+        }
+        //a point of the schematic at old pixel p ends up at originX + (p - keyOriginX) * scale
+        double scale = gridSize / keyGridSize;
+        g2d.setColor(Preferences.backgroundColor);
+        g2d.fillRect(0, 0, owner.getWidth(), owner.getHeight());
+        g2d.drawImage(image, new AffineTransform(scale, 0, 0, scale, originX - keyOriginX * scale, originY - keyOriginY * scale), null);
+        return !image.contentsLost();
+    }
+
+    /**
+     * moves the contents of the image by shiftX, shiftY and draws the strips
+     * along the edges that were uncovered by the move
+     */
+    private void shift(int width, int height) {
+        if (Math.abs(shiftX) >= width || Math.abs(shiftY) >= height) {
+            //moved further than the window is big, nothing to keep
+            Graphics2D ig = image.createGraphics();
+            content.paintContent(ig);
+            ig.dispose();
+            return;
+        }
+        Graphics2D ig = image.createGraphics();
+        ig.copyArea(Math.max(0, -shiftX), Math.max(0, -shiftY), width - Math.abs(shiftX), height - Math.abs(shiftY), shiftX, shiftY);
+        ig.dispose();
+
+        //vertical strip on the left or right side
+        if (shiftX != 0) {
+            paintClipped(shiftX > 0 ? 0 : width + shiftX, 0, Math.abs(shiftX), height);
+        }
+        //horizontal strip on the top or bottom
+        if (shiftY != 0) {
+            paintClipped(0, shiftY > 0 ? 0 : height + shiftY, width, Math.abs(shiftY));
+        }
+    }
+
+    private void paintClipped(int x, int y, int width, int height) {
+        Graphics2D ig = image.createGraphics();
+        ig.clipRect(x, y, width, height);
+        content.paintContent(ig);
+        ig.dispose();
+    }
+}
@@ -0,0 +1,48 @@
+package circuitikztool;
+
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+
+/**
+ * StringPool keeps one copy of every distinct label and latex string the user
+ * typed into a schematic, so components with the same text share a single
+ * string. Text that is still the default of its component type is shared
+ * through ComponentType instead and never ends up in here (see
+ * Component.shareText()).
+ *
+ * Every store has its own pool and empties it together with the store. The
+ * pool only holds on to its strings weakly, text no component uses anymore
+ * (like everything typed into the label field on the way to the final label)
+ * is dropped by the garbage collector.
+ */
+class StringPool {
+
+    private final WeakHashMap<String, WeakReference<String>> strings = new WeakHashMap<>();
+
+    /**
+     * returns the pooled copy of a string, the string itself becomes the
+     * pooled copy if there is none yet
+     *
+     * @param s string to look up, may be null
+     * @return string equal to s that is shared by everyone using the pool
+     */
+    String intern(String s) {
+        if (s == null) {
+            return null;
+        }
+        WeakReference<String> reference = strings.get(s);
+        String pooled = reference == null ? null : reference.get();
+        if (pooled == null) {
+            strings.put(s, new WeakReference<>(s));
+            pooled = s;
+        }
+        return pooled;
+    }
+
+    /**
+     * forgets every pooled string
+     */
+    void clear() {
+        strings.clear();
+    }
+}
@@ -0,0 +1,172 @@
+package circuitikztool;
+
+import java.awt.geom.Point2D;
+
+/**
+ * TerminalIndex knows where the terminals of the placed components are (see
+ * Component.getTerminals()), so a wire being drawn can snap to them. Terminals
+ * are counted per half grid point, keyed by their packed position (see
+ * HalfGrid), so terminals on the same point always end up under the same key.
+ *
+ * Like the SpatialIndex it is updated one component at a time and only
+ * rebuilt when a whole schematic is loaded. Looking up the terminal closest to
+ * the cursor only checks a fixed number of grid points around it, no matter
+ * how many components are placed. The counts are kept in an open addressing
+ * table of primitive arrays, adding, removing and looking up terminals
+ * doesn't create any objects.
+ */
+public class TerminalIndex {
+
+    //furthest (in half grid steps) nearest() looks around the point it is given
+    final static int MAX_SEARCH_STEPS = 4;
+
+    //packed position and number of terminals of every entry, a count of 0 marks a free entry. the length is a power of two
+    private long[] keys = new long[64];
+    private int[] counts = new int[64];
+
+    //number of entries in use, the table grows once it is half full
+    private int used = 0;
+
+    /**
+     * adds the terminals of a component
+     *
+     * @param c component to add
+     */
+    public void add(Component c) {
+        for (int a = 0; a < c.getTerminalCount(); a++) {
+            increment(c.getTerminal(a));
+        }
+    }
+
+    /**
+     * removes the terminals of a component, it has to be at the same position
+     * it was added at
+     *
+     * @param c component to remove
+     */
+    public void remove(Component c) {
+        for (int a = 0; a < c.getTerminalCount(); a++) {
+            decrement(c.getTerminal(a));
+        }
+    }
+
+    /**
+     * replaces the indexed terminals with the ones of the given components
+     *
+     * @param components all placed components
+     */
+    public void rebuild(ComponentStore components) {
+        clear();
+        for (int a = 0; a < components.slotCount(); a++) {
+            if (!components.isRemoved(a)) {
+                add(components.get(a));
+            }
+        }
+    }
+
+    /**
+     * removes everything from the index
+     */
+    public void clear() {
+        keys = new long[64];
+        counts = new int[64];
+        used = 0;
+    }
+
+    /**
+     * finds the terminal closest to a point
+     *
+     * @param p point in circuitikz coordinates
+     * @param maxDistance furthest a terminal may be from p, in circuitikz
+     * coordinates. only MAX_SEARCH_STEPS half grid steps are searched however
+     * far that is
+     * @return position of the closest terminal, null if there is none close
+     * enough
+     */
+    public Point2D nearest(Point2D p, double maxDistance) {
+        int range = Math.min(MAX_SEARCH_STEPS, (int) Math.ceil(maxDistance * HalfGrid.STEPS_PER_UNIT));
+        int cx = HalfGrid.step(p.getX()), cy = HalfGrid.step(p.getY());
+        long best = 0;
+        boolean found = false;
+        double bestDistance = maxDistance;
+        for (int x = cx - range; x <= cx + range; x++) {
+            for (int y = cy - range; y <= cy + range; y++) {
+                long key = HalfGrid.pack(x, y);
+                if (counts[find(key)] == 0) {
+                    continue;
+                }
+                double d = p.distance(HalfGrid.x(key), HalfGrid.y(key));
+                if (d <= bestDistance) {
+                    bestDistance = d;
+                    best = key;
+                    found = true;
+                }
+            }
+        }
+        return found ? HalfGrid.toPoint(best) : null;
+    }
+
+    private void increment(long key) {
+        int entry = find(key);
+        if (counts[entry] == 0) {
+            keys[entry] = key;
+            used++;
+        }
+        counts[entry]++;
+        if (used * 2 > keys.length) {
+            grow();
+        }
+    }
+
+    private void decrement(long key) {
+        int entry = find(key);
+        if (counts[entry] == 0 || --counts[entry] > 0) {
+            return;
+        }
+        used--;
+
+        //entries further along the probe sequence move back into the gap, so find() never stops at it too early
+        int mask = keys.length - 1;
+        int free = entry;
+        for (int a = (entry + 1) & mask; counts[a] != 0; a = (a + 1) & mask) {
+            int home = hash(keys[a]) & mask;
+            boolean reachable = free <= a ? free < home && home <= a : free < home || home <= a;
+            if (!reachable) {
+                keys[free] = keys[a];
+                counts[free] = counts[a];
+                counts[a] = 0;
+                free = a;
+            }
+        }
+    }
+
+    /**
+     * @return entry holding the key, or the free entry it would go into
+     */
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int entry = hash(key) & mask;
+        while (counts[entry] != 0 && keys[entry] != key) {
+            entry = (entry + 1) & mask;
+        }
+        return entry;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new long[oldKeys.length * 2];
+        counts = new int[oldKeys.length * 2];
+        for (int a = 0; a < oldKeys.length; a++) {
+            if (oldCounts[a] != 0) {
+                int entry = find(oldKeys[a]);
+                keys[entry] = oldKeys[a];
+                counts[entry] = oldCounts[a];
+            }
+        }
+    }
+
+    private static int hash(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32);
+    }
+}
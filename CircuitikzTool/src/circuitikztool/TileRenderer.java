@@ -0,0 +1,417 @@
+package circuitikztool;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.font.FontRenderContext;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import javax.swing.SwingUtilities;
+
+/**
+ * TileRenderer draws the static part of very large schematics (background,
+ * grid, origin and placed components) in square tiles of TILE_SIZE pixels.
+ * Tiles are positioned relative to the origin of the schematic, so a tile
+ * stays valid while panning and only has to be rendered again when the zoom,
+ * the schematic or the theme colors change.
+ *
+ * Tiles are rendered on a ForkJoinPool in the background. The event dispatch
+ * thread only copies finished tiles onto the screen, tiles that aren't
+ * finished yet are shown as an empty grid (or as their out of date version if
+ * there is one) until they arrive. Finished tiles are kept in a cache which
+ * drops the least recently used tiles once they take up more than
+ * MAX_CACHE_BYTES of memory.
+ *
+ * Everything except the rendering itself happens on the event dispatch
+ * thread. The workers only read the snapshot of the placed components they
+ * were handed, never the live list of the CircuitMaker.
+ */
+public class TileRenderer {
+
+    //width and height of a tile in pixels
+    final static int TILE_SIZE = 256;
+
+    //upper limit for the memory used by cached tiles, never more than an eighth of the heap
+    final static long MAX_CACHE_BYTES = Math.min(128L * 1024 * 1024, Runtime.getRuntime().maxMemory() / 8);
+
+    //workers are daemon threads, one core is left to the event dispatch thread
+    private static final ForkJoinPool POOL = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+
+    /**
+     * position of a tile, tile 0,0 has its top left corner at the origin
+     */
+    private static class TileKey {
+
+        final double gridSize;
+        final int x, y;
+
+        TileKey(double gridSize, int x, int y) {
+            this.gridSize = gridSize;
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof TileKey)) {
+                return false;
+            }
+            TileKey k = (TileKey) o;
+            return k.gridSize == gridSize && k.x == x && k.y == y;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) Double.doubleToLongBits(gridSize) * 31 * 31 + x * 31 + y;
+        }
+    }
+
+    /**
+     * a rendered tile and the version of the schematic it shows
+     */
+    private static class Tile {
+
+        final BufferedImage image;
+        final int version;
+
+        Tile(BufferedImage image, int version) {
+            this.image = image;
+            this.version = version;
+        }
+    }
+
+    private final CircuitMaker owner;
+
+    //grid used for the tiles, shared by the workers so access to it is synchronized
+    private final GridLayer tileGrid = new GridLayer();
+
+    //grid drawn where a tile is still missing, only used on the event dispatch thread
+    private final GridLayer placeholderGrid = new GridLayer();
+
+    //components currently placed and the version of the schematic they belong to
+    private ComponentSnapshot snapshot = new ComponentList().snapshot();
+    private int version = 0;
+
+    //first version rendered after the last clear(), tiles of older versions were rendered with the old theme and are thrown away when they finish
+    private int clearedVersion = 0;
+
+    //grid size currently on screen, workers skip tiles that were queued for a different zoom level
+    private volatile double currentGridSize;
+
+    //finished tiles, least recently used first
+    private final LinkedHashMap<TileKey, Tile> cache = new LinkedHashMap<>(64, 0.75f, true);
+    private long cacheBytes = 0;
+
+    //tiles queued on the pool and the version they are being rendered for
+    private final HashMap<TileKey, Integer> pending = new HashMap<>();
+
+    //theme colors the cached tiles were rendered with
+    private Color keyBackground, keyComponent, keyGrid, keySelected;
+    private boolean keyAntialiasing;
+
+    /**
+     * creates a tile renderer for the given CircuitMaker, it is asked to
+     * repaint whenever a tile is finished
+     *
+     * @param owner CircuitMaker the tiles are drawn onto
+     */
+    public TileRenderer(CircuitMaker owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * hands the renderer the components currently placed. tiles touching the
+     * changed area are out of date, tiles already on screen keep being shown
+     * until their replacement is finished.
+     *
+     * @param components snapshot of all placed components, it must not be
+     * changed afterwards
+     * @param changed area of the schematic (in circuitikz coordinates) that
+     * changed since the last call, null if anything could have changed
+     * @param changedGridSize grid size the changed area was measured at.
+     * labels keep their size in pixels, so the area only holds for tiles of
+     * that zoom level, tiles of other zoom levels are left out of date
+     */
+    public void setComponents(ComponentSnapshot components, Rectangle2D changed, double changedGridSize) {
+        snapshot = components;
+        version++;
+        if (changed == null) {
+            return;
+        }
+        //tiles that were up to date and don't touch the change are up to date for the new version too
+        for (Map.Entry<TileKey, Tile> entry : cache.entrySet()) {
+            TileKey key = entry.getKey();
+            Tile tile = entry.getValue();
+            double margin = 2 / key.gridSize;
+            Rectangle2D area = new Rectangle2D.Double(key.x * TILE_SIZE / key.gridSize - margin, key.y * TILE_SIZE / key.gridSize - margin,
+                    TILE_SIZE / key.gridSize + 2 * margin, TILE_SIZE / key.gridSize + 2 * margin);
+            if (tile.version == version - 1 && key.gridSize == changedGridSize && !CircuitMaker.touches(area, changed)) {
+                entry.setValue(new Tile(tile.image, version));
+            }
+        }
+    }
+
+    /**
+     * throws away every cached tile
+     */
+    public void clear() {
+        cache.clear();
+        cacheBytes = 0;
+        pending.clear();
+        version++;
+        clearedVersion = version;
+    }
+
+    /**
+     * draws the tiles covering the window, queues every missing or out of
+     * date tile on the worker pool.
+     *
+     * @param g2d graphics object to be drawn onto
+     * @param gridSize current size of the grid
+     * @param originX x position of the origin in pixels
+     * @param originY y position of the origin in pixels
+     * @param width width of the window
+     * @param height height of the window
+     */
+    public void paint(Graphics2D g2d, double gridSize, double originX, double originY, int width, int height) {
+        if (keyBackground != Preferences.backgroundColor
+                || keyComponent != Preferences.componentColor
+                || keyGrid != Preferences.gridColor
+                || keySelected != Preferences.selectedColor
+                || keyAntialiasing != Preferences.antialiasing) {
+            keyAntialiasing = Preferences.antialiasing;
+            keyBackground = Preferences.backgroundColor;
+            keyComponent = Preferences.componentColor;
+            keyGrid = Preferences.gridColor;
+            keySelected = Preferences.selectedColor;
+            clear();
+        }
+        currentGridSize = gridSize;
+
+        int firstX = (int) Math.floor(-originX / TILE_SIZE);
+        int firstY = (int) Math.floor(-originY / TILE_SIZE);
+        int lastX = (int) Math.floor((width - originX) / TILE_SIZE);
+        int lastY = (int) Math.floor((height - originY) / TILE_SIZE);
+
+        //queue everything missing or out of date first, out of date tiles are still drawn until they are replaced
+        boolean missing = false;
+        for (int y = firstY; y <= lastY; y++) {
+            for (int x = firstX; x <= lastX; x++) {
+                TileKey key = new TileKey(gridSize, x, y);
+                Tile tile = cache.get(key);
+                if (tile == null || tile.version != version) {
+                    queue(key);
+                }
+                missing |= tile == null;
+            }
+        }
+
+        //missing tiles show the empty grid
+        if (missing) {
+            placeholderGrid.paint(g2d, gridSize, originX, originY, width, height);
+        }
+        for (int y = firstY; y <= lastY; y++) {
+            for (int x = firstX; x <= lastX; x++) {
+                Tile tile = cache.get(new TileKey(gridSize, x, y));
+                if (tile != null) {
+                    g2d.drawImage(tile.image, (int) Math.round(originX + x * TILE_SIZE), (int) Math.round(originY + y * TILE_SIZE), null);
+                }
+            }
+        }
+    }
+
+    /**
+     * draws the cached tiles of the zoom level last drawn by paint() scaled to
+     * a new zoom level, without queueing anything. used while the user is
+     * zooming.
+     *
+     * @param g2d graphics object to be drawn onto
+     * @param gridSize current size of the grid
+     * @param originX x position of the origin in pixels
+     * @param originY y position of the origin in pixels
+     * @param width width of the window
+     * @param height height of the window
+     * @return false if there is nothing to scale, paint() has to be used
+     * then
+     */
+    public boolean paintPreview(Graphics2D g2d, double gridSize, double originX, double originY, int width, int height) {
+        double oldGridSize = currentGridSize;
+        if (oldGridSize <= 0) {
+            return false;
+        }
+        double scale = gridSize / oldGridSize;
+        double tileSize = TILE_SIZE * scale;
+        int firstX = (int) Math.floor(-originX / tileSize);
+        int firstY = (int) Math.floor(-originY / tileSize);
+        int lastX = (int) Math.floor((width - originX) / tileSize);
+        int lastY = (int) Math.floor((height - originY) / tileSize);
+
+        g2d.setColor(Preferences.backgroundColor);
+        g2d.fillRect(0, 0, width, height);
+        for (int y = firstY; y <= lastY; y++) {
+            for (int x = firstX; x <= lastX; x++) {
+                Tile tile = cache.get(new TileKey(oldGridSize, x, y));
+                if (tile != null) {
+                    //both edges are rounded on their own so neighbouring tiles don't leave gaps
+                    int left = (int) Math.round(originX + x * tileSize);
+                    int top = (int) Math.round(originY + y * tileSize);
+                    int right = (int) Math.round(originX + (x + 1) * tileSize);
+                    int bottom = (int) Math.round(originY + (y + 1) * tileSize);
+                    g2d.drawImage(tile.image, left, top, right - left, bottom - top, null);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * queues a tile on the worker pool unless it is already being rendered for
+     * the current version of the schematic
+     */
+    private void queue(final TileKey key) {
+        Integer queuedVersion = pending.get(key);
+        if (queuedVersion != null && queuedVersion == version) {
+            return;
+        }
+        pending.put(key, version);
+
+        final ComponentSnapshot components = snapshot;
+        final int tileVersion = version;
+        POOL.execute(new Runnable() {
+            @Override
+            public void run() {
+                //the user zoomed away before we got to this tile
+                if (key.gridSize != currentGridSize) {
+                    SwingUtilities.invokeLater(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (pending.get(key) != null && pending.get(key) == tileVersion) {
+                                pending.remove(key);
+                            }
+                        }
+                    });
+                    return;
+                }
+                final BufferedImage image = render(key, components);
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        finished(key, new Tile(image, tileVersion));
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * stores a finished tile in the cache, evicting the least recently used
+     * tiles if the cache grew too big
+     */
+    private void finished(TileKey key, Tile tile) {
+        Integer queuedVersion = pending.get(key);
+        if (queuedVersion != null && queuedVersion == tile.version) {
+            pending.remove(key);
+        }
+        if (tile.version < clearedVersion) {
+            //started before the cache was cleared, colors or antialiasing may be out of date
+            return;
+        }
+        Tile old = cache.get(key);
+        if (old != null && old.version > tile.version) {
+            //an even newer version finished first
+            return;
+        }
+        if (old != null) {
+            cacheBytes -= bytes(old);
+        }
+        cache.put(key, tile);
+        cacheBytes += bytes(tile);
+
+        Iterator<Map.Entry<TileKey, Tile>> eldest = cache.entrySet().iterator();
+        while (cacheBytes > MAX_CACHE_BYTES && eldest.hasNext()) {
+            Tile evicted = eldest.next().getValue();
+            if (evicted == tile) {
+                break;
+            }
+            cacheBytes -= bytes(evicted);
+            eldest.remove();
+        }
+        owner.requestRepaint();
+    }
+
+    private static long bytes(Tile tile) {
+        return 4L * tile.image.getWidth() * tile.image.getHeight();
+    }
+
+    /**
+     * renders a single tile, called on a worker thread
+     *
+     * @param key tile to render
+     * @param components snapshot of the placed components
+     * @return rendered tile
+     */
+    private BufferedImage render(TileKey key, ComponentSnapshot components) {
+        double gridSize = key.gridSize;
+        BufferedImage image = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        //tiles are rendered in the background, so they are always drawn at full quality
+        CircuitMaker.applyRenderingHints(g, false);
+
+        //position of the origin relative to the top left corner of this tile
+        double originX = -key.x * TILE_SIZE;
+        double originY = -key.y * TILE_SIZE;
+        synchronized (tileGrid) {
+            tileGrid.paint(g, gridSize, originX, originY, TILE_SIZE, TILE_SIZE);
+        }
+        g.setColor(Preferences.selectedColor);
+        g.fillOval((int) (originX - 3.0), (int) (originY - 3.0), 5, 5);
+
+        //area covered by the tile in circuitikz coordinates, grown a bit like the viewport of the CircuitMaker
+        double margin = 2 / gridSize;
+        Rectangle2D area = new Rectangle2D.Double(-originX / gridSize - margin, -originY / gridSize - margin,
+                TILE_SIZE / gridSize + 2 * margin, TILE_SIZE / gridSize + 2 * margin);
+        Point2D offset = new Point2D.Double(originX / gridSize, originY / gridSize);
+        boolean full = CircuitMaker.getDetailLevel(gridSize) == CircuitMaker.LOD_FULL;
+        FontRenderContext labelContext = g.getFontRenderContext();
+
+        //only the components near the tile are looked at, labels can reach into the tile from further away
+        Rectangle2D searchArea = area;
+        if (full) {
+            Point2D reach = Component.getLabelReach(labelContext, gridSize, components.getLongestLabel());
+            searchArea = new Rectangle2D.Double(area.getX() - reach.getX(), area.getY() - reach.getY(),
+                    area.getWidth() + 2 * reach.getX(), area.getHeight() + 2 * reach.getY());
+        }
+        int[] found = components.find(searchArea);
+
+        //same order as the static layer, symbols first and labels on top
+        Component[] labelVisible = new Component[found.length];
+        for (int a = 0; a < found.length; a++) {
+            Component c = components.get(found[a]);
+            boolean symbolVisible = CircuitMaker.touches(area, c.getBounds());
+            if (full && CircuitMaker.touches(area, c.getLabelBounds(labelContext, gridSize))) {
+                labelVisible[a] = c;
+            }
+            if (symbolVisible || labelVisible[a] != null) {
+                if (full) {
+                    c.paintSymbol(g, gridSize, offset, false);
+                } else {
+                    c.paintSimplified(g, gridSize, offset, false);
+                }
+            }
+        }
+        if (full) {
+            for (int a = 0; a < labelVisible.length; a++) {
+                if (labelVisible[a] != null) {
+                    labelVisible[a].paintLabel(g, gridSize, offset, false);
+                }
+            }
+        }
+        g.dispose();
+        return image;
+    }
+}
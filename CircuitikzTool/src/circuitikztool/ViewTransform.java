@@ -0,0 +1,141 @@
+package circuitikztool;
+
+import java.awt.geom.Point2D;
+
+/**
+ * ViewTransform holds the pan and zoom of the CircuitMaker window: the size
+ * of one grid unit in pixels and where the origin of the schematic is in the
+ * window. Input handlers change it, the painting code only reads it.
+ *
+ * The grid size and the position of the origin are always whole pixels, so
+ * the dot grid tile and the shifted static layer line up exactly with freshly
+ * drawn components. Zooming is multiplicative, the unrounded zoom level is
+ * kept separately so that many small wheel steps still add up.
+ */
+public class ViewTransform {
+
+    //zoom level as requested by the user and the grid size actually used (the zoom level rounded to whole pixels)
+    private double zoom;
+    private double gridSize;
+
+    //position of the origin in pixels
+    private double originX, originY;
+
+    /**
+     * creates a view transform
+     *
+     * @param gridSize size of one grid unit in pixels
+     * @param originX initial x position of the origin in pixels
+     * @param originY initial y position of the origin in pixels
+     */
+    public ViewTransform(double gridSize, double originX, double originY) {
+        zoom = gridSize;
+        this.gridSize = Math.round(gridSize);
+        this.originX = Math.round(originX);
+        this.originY = Math.round(originY);
+    }
+
+    public double getGridSize() {
+        return gridSize;
+    }
+
+    /**
+     * moves the schematic by the given amount of pixels
+     *
+     * @param dx horizontal distance in pixels
+     * @param dy vertical distance in pixels
+     */
+    public void panBy(int dx, int dy) {
+        originX += dx;
+        originY += dy;
+    }
+
+    /**
+     * multiplies the zoom level by a factor while keeping the point of the
+     * schematic under the given pixel where it is
+     *
+     * @param factor zoom factor, bigger than 1 zooms in
+     * @param minGridSize smallest grid size allowed
+     * @param anchorX x position of the fixed point in pixels (usually the
+     * cursor)
+     * @param anchorY y position of the fixed point in pixels
+     * @return true if the grid size changed
+     */
+    public boolean zoomAt(double factor, double minGridSize, int anchorX, int anchorY) {
+        zoom = Math.max(minGridSize, zoom * factor);
+        double newGridSize = Math.round(zoom);
+        if (newGridSize == gridSize) {
+            return false;
+        }
+        //schematic coordinates under the anchor stay under the anchor
+        double anchorGridX = (anchorX - originX) / gridSize;
+        double anchorGridY = (anchorY - originY) / gridSize;
+        gridSize = newGridSize;
+        originX = Math.round(anchorX - anchorGridX * gridSize);
+        originY = Math.round(anchorY - anchorGridY * gridSize);
+        return true;
+    }
+
+    /**
+     * returns the offset of the origin in grid units
+     *
+     * @return offset of the origin in circuitikz coordinates
+     */
+    public Point2D getOriginOffset() {
+        return new Point2D.Double(originX / gridSize, originY / gridSize);
+    }
+
+    /**
+     * returns the x position of the origin in pixels
+     *
+     * @return x position of the origin
+     */
+    public double getOriginX() {
+        return originX;
+    }
+
+    /**
+     * returns the y position of the origin in pixels
+     *
+     * @return y position of the origin
+     */
+    public double getOriginY() {
+        return originY;
+    }
+
+    /**
+     * maps a pixel position of the window to the schematic without snapping
+     * it to the grid
+     *
+     * @param pixelX x position in pixels
+     * @param pixelY y position in pixels
+     * @return position in circuitikz coordinates
+     */
+    public Point2D toSchematic(int pixelX, int pixelY) {
+        return new Point2D.Double((pixelX - originX) / gridSize, (pixelY - originY) / gridSize);
+    }
+
+    /**
+     * maps a horizontal pixel position of the window to the nearest half grid
+     * point of the schematic
+     *
+     * @param pixel x position in pixels
+     * @return x position of the nearest half grid point in circuitikz
+     * coordinates
+     */
+    public double toGridX(int pixel) {
+        return 0.5 * Math.round((pixel - originX) / (gridSize / 2));
+    }
+
+    /**
+     * maps a vertical pixel position of the window to the nearest half grid
+     * point of the schematic
+     *
+     * @param pixel y position in pixels
+     * @return y position of the nearest half grid point in circuitikz
+     * coordinates
+     */
+    public double toGridY(int pixel) {
+        return 0.5 * Math.round((pixel - originY) / (gridSize / 2));
+    }
+}